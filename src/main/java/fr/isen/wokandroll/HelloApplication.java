@@ -4,16 +4,31 @@ import javafx.application.Application;
 import javafx.scene.image.Image;
 import javafx.stage.Stage;
 import fr.isen.wokandroll.managers.SceneManager;
+import fr.isen.wokandroll.services.BackendRegistry;
+import fr.isen.wokandroll.services.CatalogClient;
+import fr.isen.wokandroll.services.CatalogEventStream;
+import fr.isen.wokandroll.services.OrderJournal;
+import fr.isen.wokandroll.services.OrderReplayer;
 import java.io.IOException;
 
 public class HelloApplication extends Application {
     @Override
     public void start(Stage stage) throws IOException {
+        // Dernier catalogue connu (snapshot disque) puis mise à jour réseau en arrière-plan
+        // (seulement les changements depuis la version du snapshot), suivie du préchargement des options
+        CatalogClient catalog = CatalogClient.getInstance();
+        catalog.loadSnapshot();
+        catalog.sync().thenCompose(v -> catalog.warmOptions());
+        // Puis les changements de disponibilité / prix poussés par le backend
+        CatalogEventStream.getInstance().start();
+
         // Initialisation de SceneManager
         SceneManager.getInstance().initialize(stage);
 
         // Chargement de home.fxml via SceneManager
         SceneManager.getInstance().loadInitialScene("home");
+        // Puis, une fois l'accueil affiché, le popup de détails produit (prêt pour le premier client)
+        SceneManager.getInstance().prewarmProductDetails();
 
         stage.setTitle("Wok & Roll");
         stage.getIcons().add(
@@ -21,6 +36,17 @@ public class HelloApplication extends Application {
         );
         stage.setFullScreen(true);
         stage.show();
+
+        // Renvoie les commandes restées dans le journal (backend indisponible, redémarrage...)
+        OrderReplayer.getInstance().wakeUp();
+    }
+
+    @Override
+    public void stop() throws IOException {
+        CatalogEventStream.getInstance().stop();
+        OrderReplayer.getInstance().shutdown();
+        OrderJournal.getInstance().close();
+        BackendRegistry.getInstance().shutdown();
     }
 
     public static void main(String[] args) {
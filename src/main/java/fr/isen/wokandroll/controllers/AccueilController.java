@@ -1,49 +1,39 @@
 package fr.isen.wokandroll.controllers;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.geometry.Rectangle2D;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.StackPane;
 import javafx.scene.layout.TilePane;
 import javafx.scene.layout.VBox;
+import fr.isen.wokandroll.managers.ImageCache;
+import fr.isen.wokandroll.managers.ImageResolver;
 import fr.isen.wokandroll.managers.SceneManager;
+import fr.isen.wokandroll.managers.ViewLifecycle;
 import fr.isen.wokandroll.models.Cart;
 import fr.isen.wokandroll.models.Product;
+import fr.isen.wokandroll.services.CatalogClient;
+import fr.isen.wokandroll.services.CatalogClient.PlatDto;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
-import java.util.Map;
-import java.util.Objects;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
 
-public class AccueilController {
+public class AccueilController implements ViewLifecycle {
 
     @FXML private Label totalLabel;
     @FXML private TilePane grid;
 
-    // --- DTOs pour l'API ---
-    private static class CategorieDto {
-        int idCategorie;
-        String nom;
-    }
-
-    private static class PlatDto {
-        int idPlat;
-        String nom;
-        String description;
-        double prix;
-        boolean disponible;
-        CategorieDto categorie;
-    }
+    // Plats tirés au sort et affichés (même ordre que les cartes de la grille) ;
+    // numéro du dernier tirage (un tirage plus ancien qui se termine est ignoré)
+    private List<PlatDto> picks = new ArrayList<>();
+    private int draws = 0;
+    // Changements de plats suivis seulement pendant que l'écran est affiché
+    private CatalogClient.Subscription subscription;
 
     // =================================================================================
     // LOGIQUE DE GESTION DES IMAGES
@@ -60,49 +50,27 @@ public class AccueilController {
     private static final String DEFAULT_BOISSONS = BASE_BOISSONS + "default.png";
     private static final String DEFAULT_DESSERTS = BASE_DESSERTS + "default.png";
 
-    // Mapping Nom BDD -> Fichier image
-    private static final Map<String, String> IMG_ENTREES = Map.of(
-            "Pork spring rolls", "Porkspringrolls.png",
-            "Vegetable spring rolls", "Vegetablespringrolls.png",
-            "Miso soup", "Misosoup.png",
-            "Chicken gyoza", "Chickengyoza.png",
-            "Wakame salad", "Wakamesalad.png"
-    );
-
-    private static final Map<String, String> IMG_PLATS = Map.of(
-            "Chicken pad thai", "Chickenpadthai.png",
-            "Beef lok lak", "Beefloklak.png",
-            "Red curry chicken", "Redcurrychicken.png",
-            "Cantonese rice", "Cantoneserice.png",
-            "Vegetable noodles", "Vegetablenoodles.png"
-    );
-
-    private static final Map<String, String> IMG_BOISSONS = Map.of(
-            "Homemade iced tea", "Homemadeicedtea.png",
-            "Coca-Cola", "CocaCola.png",
-            "Mineral water", "Mineralwater.png",
-            "Asian beer", "Asianbeer.png",
-            "Lychee juice", "Lycheejuice.png"
-    );
-
-    private static final Map<String, String> IMG_DESSERTS = Map.of(
-            "Coconut pearls", "Coconutpearls.png",
-            "Ice cream mochi", "Icecreammochi.png",
-            "Fried banana", "Friedbanana.png",
-            "Lychees in syrup", "Lycheesinsyrup.png",
-            "Fresh pineapple", "Freshpineapple.png"
-    );
-
     // =================================================================================
     // INITIALISATION
     // =================================================================================
 
-    @FXML
-    public void initialize() {
-        loadRandomProductsFromApi();
+    // Écran gardé en mémoire : nouveau tirage seulement si un plat affiché a changé (prix, disponibilité, retrait)
+    // pendant qu'il était caché ; ensuite, chaque changement ne touche que la carte concernée
+    @Override
+    public void onShow() {
+        if (subscription == null) subscription = CatalogClient.getInstance().onPlatChanged(this::onPlatChanged);
+        if (picksOutdated()) loadRandomProductsFromApi();
         updateTotal();
     }
 
+    @Override
+    public void onHide() {
+        if (subscription != null) {
+            subscription.cancel();
+            subscription = null;
+        }
+    }
+
     private void updateTotal() {
         double total = Cart.getInstance().getTotal();
         if (totalLabel != null) {
@@ -116,47 +84,90 @@ public class AccueilController {
 
     private void loadRandomProductsFromApi() {
         if (grid == null) return;
-        grid.getChildren().clear();
-
-        // Récupère un plat aléatoire pour chaque catégorie (1=Entrée, 2=Plat, etc.)
-        PlatDto entree  = fetchRandomPlatFromCategory(1);
-        PlatDto plat    = fetchRandomPlatFromCategory(2);
-        PlatDto boisson = fetchRandomPlatFromCategory(3);
-        PlatDto dessert = fetchRandomPlatFromCategory(4);
-
-        if (entree  != null) grid.getChildren().add(createProductCard(entree));
-        if (plat    != null) grid.getChildren().add(createProductCard(plat));
-        if (boisson != null) grid.getChildren().add(createProductCard(boisson));
-        if (dessert != null) grid.getChildren().add(createProductCard(dessert));
-    }
-
-    private PlatDto fetchRandomPlatFromCategory(int idCategorie) {
-        HttpURLConnection conn = null;
-        try {
-            URL url = new URL("http://localhost:7001/categories/" + idCategorie + "/plats");
-            conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-            conn.setRequestProperty("Accept", "application/json");
+        int draw = ++draws;
+
+        // Les quatre catégories viennent du cache partagé (aucun appel réseau s'il est à jour),
+        // sinon elles sont téléchargées en parallèle ; l'affichage garde l'ordre des catégories
+        CatalogClient client = CatalogClient.getInstance();
+        List<CompletableFuture<List<PlatDto>>> categories = new ArrayList<>();
+        for (int idCategorie : CatalogClient.CATEGORY_IDS) {
+            categories.add(client.category(idCategorie).exceptionally(e -> {
+                System.err.println("Erreur API : " + e.getMessage());
+                return List.of();
+            }));
+        }
 
-            if (conn.getResponseCode() != HttpURLConnection.HTTP_OK) return null;
+        CompletableFuture.allOf(categories.toArray(new CompletableFuture<?>[0]))
+                .thenRunAsync(() -> {
+                    if (draw != draws) return;
+                    List<PlatDto> picked = new ArrayList<>();
+                    List<StackPane> cards = new ArrayList<>();
+                    for (CompletableFuture<List<PlatDto>> category : categories) {
+                        PlatDto plat = pickRandomAvailable(category.join());
+                        if (plat != null) {
+                            picked.add(plat);
+                            cards.add(createProductCard(plat));
+                        }
+                    }
+                    picks = picked;
+                    grid.getChildren().setAll(cards);
+                }, CatalogClient.FX);
+    }
 
-            try (InputStream is = conn.getInputStream();
-                 InputStreamReader reader = new InputStreamReader(is, StandardCharsets.UTF_8)) {
+    /**
+     * Plat tiré modifié pendant l'affichage : sa carte est mise à jour, ou remplacée par un autre plat
+     * disponible de la même catégorie s'il ne l'est plus (retirée s'il n'y en a aucun).
+     */
+    private void onPlatChanged(PlatDto plat) {
+        for (int i = 0; i < picks.size(); i++) {
+            if (picks.get(i).idPlat != plat.idPlat) continue;
+
+            PlatDto replacement = plat;
+            if (!plat.disponible) {
+                List<PlatDto> category = (plat.categorie != null)
+                        ? CatalogClient.getInstance().category(plat.categorie.idCategorie).getNow(null)
+                        : null;
+                replacement = (category != null) ? pickRandomAvailable(category) : null;
+            }
+            if (replacement == null) {
+                picks.remove(i);
+                grid.getChildren().remove(i);
+            } else {
+                picks.set(i, replacement);
+                grid.getChildren().set(i, createProductCard(replacement));
+            }
+            return;
+        }
+    }
 
-                Gson gson = new GsonBuilder().create();
-                PlatDto[] plats = gson.fromJson(reader, PlatDto[].class);
-                if (plats == null || plats.length == 0) return null;
+    /**
+     * Vrai si rien n'est affiché ou si un plat tiré n'est plus tel quel dans le catalogue en mémoire.
+     */
+    private boolean picksOutdated() {
+        if (picks.isEmpty()) return true;
+        for (PlatDto plat : picks) {
+            if (plat.categorie == null) return true;
+            List<PlatDto> current = CatalogClient.getInstance().category(plat.categorie.idCategorie).getNow(null);
+            if (current == null || !current.contains(plat)) return true;
+        }
+        return false;
+    }
 
-                // Plat aléatoire
-                int index = (int) (Math.random() * plats.length);
-                return plats[index];
+    /**
+     * Tirage uniforme d'un plat disponible en un seul passage (reservoir sampling, k = 1),
+     * sans copier la liste filtrée.
+     */
+    private static PlatDto pickRandomAvailable(List<PlatDto> plats) {
+        PlatDto picked = null;
+        int seen = 0;
+        for (PlatDto plat : plats) {
+            if (!plat.disponible) continue;
+            seen++;
+            if (ThreadLocalRandom.current().nextInt(seen) == 0) {
+                picked = plat;
             }
-        } catch (Exception e) {
-            System.err.println("Erreur API : " + e.getMessage());
-            return null;
-        } finally {
-            if (conn != null) conn.disconnect();
         }
+        return picked;
     }
 
     // =================================================================================
@@ -199,46 +210,18 @@ public class AccueilController {
 
     // --- Méthodes utilitaires pour les images ---
 
+    // Image du plat dans le dossier de sa catégorie, voir ImageResolver
     private String imagePathFor(PlatDto p) {
         int cat = (p != null && p.categorie != null) ? p.categorie.idCategorie : 0;
-        String name = (p != null) ? p.nom : null;
-
-        if (cat == 1) return pickFromMap(BASE_ENTREES, DEFAULT_ENTREES, IMG_ENTREES, name);
-        if (cat == 2) return pickFromMap(BASE_PLATS, DEFAULT_PLATS, IMG_PLATS, name);
-        if (cat == 3) return pickFromMap(BASE_BOISSONS, DEFAULT_BOISSONS, IMG_BOISSONS, name);
-        if (cat == 4) return pickFromMap(BASE_DESSERTS, DEFAULT_DESSERTS, IMG_DESSERTS, name);
+        String path = (p != null) ? ImageResolver.getInstance().resolve(cat, p.nom) : null;
+        if (path != null) return path;
 
+        if (cat == 1) return DEFAULT_ENTREES;
+        if (cat == 3) return DEFAULT_BOISSONS;
+        if (cat == 4) return DEFAULT_DESSERTS;
         return DEFAULT_PLATS;
     }
 
-    private String pickFromMap(String base, String fallback, Map<String, String> map, String name) {
-        if (name == null) return fallback;
-
-        // Vérification directe dans la Map
-        String file = map.get(name);
-        if (file != null) {
-            String path = base + file;
-            if (getClass().getResource(path) != null) return path;
-        }
-
-        // Patch spécial pour Coca-Cola (gestion minuscules/tirets)
-        if (base.equals(BASE_BOISSONS)) {
-            String key = name.toLowerCase().replaceAll("[^a-z]", "");
-            if (key.contains("cocacola")) {
-                String p = base + "CocaCola.png";
-                if (getClass().getResource(p) != null) return p;
-            }
-        }
-
-        // Patch spécial Mochi
-        if (name.equals("Ice cream mochi") && base.equals(BASE_DESSERTS)) {
-            String p = base + "Icecreammochi.png";
-            if (getClass().getResource(p) != null) return p;
-        }
-
-        return fallback;
-    }
-
     // Crée une image rognée en carré
     private ImageView squareImage(String resourcePath, double size) {
         ImageView iv = new ImageView();
@@ -247,19 +230,8 @@ public class AccueilController {
         iv.setFitHeight(size);
         iv.setPreserveRatio(true);
 
-        Image img = null;
-        try (InputStream is = getClass().getResourceAsStream(resourcePath)) {
-            img = new Image(Objects.requireNonNull(is));
-        } catch (Exception ignored) {}
-
-        if (img != null) {
-            iv.setImage(img);
-            // Calcul pour centrer l'image (crop)
-            double w = img.getWidth();
-            double h = img.getHeight();
-            double side = Math.min(w, h);
-            iv.setViewport(new Rectangle2D((w - side) / 2, (h - side) / 2, side, side));
-        }
+        // Vignette déjà recadrée (centre de l'image), partagée avec les autres écrans
+        ImageCache.getInstance().loadSquare(iv, resourcePath, size, null);
         return iv;
     }
 
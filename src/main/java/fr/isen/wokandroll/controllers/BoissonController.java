@@ -1,64 +1,35 @@
 package fr.isen.wokandroll.controllers;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.geometry.Rectangle2D;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.StackPane;
 import javafx.scene.layout.TilePane;
 import javafx.scene.layout.VBox;
+import fr.isen.wokandroll.managers.ImageCache;
+import fr.isen.wokandroll.managers.ImageResolver;
 import fr.isen.wokandroll.managers.SceneManager;
+import fr.isen.wokandroll.managers.ViewLifecycle;
 import fr.isen.wokandroll.models.Cart;
 import fr.isen.wokandroll.models.Product;
+import fr.isen.wokandroll.services.CatalogClient.PlatDto;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
-import java.util.Map;
-import java.util.Objects;
 
-public class BoissonController {
+public class BoissonController implements ViewLifecycle {
 
     @FXML private Label totalLabel;
     @FXML private TilePane grid;
-
-    // --- DTOs ---
-    public static class CategorieDto {
-        public int idCategorie;
-        public String nom;
-    }
-
-    public static class BoissonDto {
-        public int idPlat;
-        public String nom;
-        public String description;
-        public double prix;
-        public boolean disponible;
-        public CategorieDto categorie;
-    }
+    private CategoryCards cards;
 
     // Gestion des images
     private static final String BASE = "/fr/isen/wokandroll/images/boissons/";
     private static final String DEFAULT_IMG = BASE + "default.png";
 
-    // Mapping Nom exact BDD -> Nom fichier image
-    private static final Map<String, String> IMG_BY_NAME = Map.of(
-            "Homemade iced tea", "Homemadeicedtea.png",
-            "Mineral water", "Mineralwater.png",
-            "Asian beer", "Asianbeer.png",
-            "Lychee juice", "Lycheejuice.png"
-    );
-
-    @FXML
-    public void initialize() {
+    @Override
+    public void onShow() {
         loadBoissonsFromApi();
         updateTotal();
     }
@@ -72,45 +43,10 @@ public class BoissonController {
 
     // --- Logique de récupération d'image ---
 
-    // Vérifie si un fichier existe dans les ressources
-    private String firstExisting(String... fileNames) {
-        for (String f : fileNames) {
-            String path = BASE + f;
-            if (getClass().getResource(path) != null) return path;
-        }
-        return DEFAULT_IMG;
-    }
-
-    // Normalise une chaîne (minuscule, lettres uniquement)
-    private String keyOf(String s) {
-        if (s == null) return "";
-        return s.toLowerCase().replaceAll("[^a-z]", "");
-    }
-
-    private String imagePathFor(BoissonDto b) {
-        if (b == null || b.nom == null) return DEFAULT_IMG;
-
-        String key = keyOf(b.nom);
-
-        // Cas spécial : Coca-Cola (Gère les tirets, espaces, majuscules)
-        if (key.contains("cocacola")) {
-            return firstExisting(
-                    "CocaCola.png",
-                    "Coca-Cola.png",
-                    "Cocacola.png",
-                    "Coca-cola.png",
-                    "cocacola.png"
-            );
-        }
-
-        // Cas standard : via la Map
-        String file = IMG_BY_NAME.get(b.nom);
-        if (file != null) {
-            String path = BASE + file;
-            if (getClass().getResource(path) != null) return path;
-        }
-
-        return DEFAULT_IMG;
+    // "Coca-Cola" -> CocaCola.png, voir ImageResolver
+    private String imagePathFor(PlatDto b) {
+        String path = (b != null) ? ImageResolver.getInstance().resolve(3, b.nom) : null;
+        return (path != null) ? path : DEFAULT_IMG;
     }
 
     // Crée une ImageView carrée et centrée
@@ -121,26 +57,8 @@ public class BoissonController {
         iv.setFitHeight(size);
         iv.setPreserveRatio(true);
 
-        Image img = null;
-        try (InputStream is = getClass().getResourceAsStream(resourcePath)) {
-            img = new Image(Objects.requireNonNull(is));
-        } catch (Exception ignored) {}
-
-        // Fallback si l'image n'est pas chargée
-        if (img == null) {
-            try (InputStream is2 = getClass().getResourceAsStream(DEFAULT_IMG)) {
-                img = new Image(Objects.requireNonNull(is2));
-            } catch (Exception ignored) {}
-        }
-
-        if (img != null) {
-            iv.setImage(img);
-            double w = img.getWidth();
-            double h = img.getHeight();
-            double side = Math.min(w, h);
-            iv.setViewport(new Rectangle2D((w - side) / 2, (h - side) / 2, side, side));
-        }
-
+        // Vignette déjà recadrée ; image par défaut si absente
+        ImageCache.getInstance().loadSquare(iv, resourcePath, size, DEFAULT_IMG);
         return iv;
     }
 
@@ -151,44 +69,15 @@ public class BoissonController {
             System.err.println("TilePane 'grid' non injecté.");
             return;
         }
-        grid.getChildren().clear();
 
-        HttpURLConnection conn = null;
-        try {
-            URL url = new URL("http://localhost:7001/categories/3/plats");
-            conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-            conn.setRequestProperty("Accept", "application/json");
-
-            if (conn.getResponseCode() != HttpURLConnection.HTTP_OK) {
-                System.err.println("Erreur API : HTTP " + conn.getResponseCode());
-                return;
-            }
-
-            try (InputStream is = conn.getInputStream();
-                 InputStreamReader reader = new InputStreamReader(is, StandardCharsets.UTF_8)) {
-
-                Gson gson = new GsonBuilder().create();
-                BoissonDto[] boissons = gson.fromJson(reader, BoissonDto[].class);
-
-                if (boissons != null) {
-                    for (BoissonDto b : boissons) {
-                        if (b.disponible) {
-                            grid.getChildren().add(createBoissonCard(b));
-                        }
-                    }
-                }
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        } finally {
-            if (conn != null) conn.disconnect();
-        }
+        // Catégorie 3 = Boissons (cartes tenues à jour par CategoryCards)
+        if (cards == null) cards = new CategoryCards(grid, b -> b.disponible, this::createBoissonCard);
+        cards.load(3);
     }
 
     // --- Création de la carte (UI) ---
 
-    private StackPane createBoissonCard(BoissonDto b) {
+    private StackPane createBoissonCard(PlatDto b) {
         StackPane root = new StackPane();
 
         Button btn = new Button();
@@ -226,12 +115,12 @@ public class BoissonController {
         Button btn = (Button) event.getSource();
 
         String imgPath = DEFAULT_IMG;
-        BoissonDto b = null;
+        PlatDto b = null;
 
         try {
             Object[] data = (Object[]) btn.getUserData();
             imgPath = (String) data[0];
-            b = (BoissonDto) data[1];
+            b = (PlatDto) data[1];
         } catch (Exception ignored) {}
 
         String name = (b != null && b.nom != null) ? b.nom : "Boisson";
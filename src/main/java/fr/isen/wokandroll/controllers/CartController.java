@@ -1,35 +1,42 @@
 package fr.isen.wokandroll.controllers;
 
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.geometry.Pos;
-import javafx.geometry.Rectangle2D;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.Region;
 import javafx.scene.layout.VBox;
+import fr.isen.wokandroll.managers.ImageCache;
 import fr.isen.wokandroll.managers.SceneManager;
+import fr.isen.wokandroll.managers.ViewLifecycle;
 import fr.isen.wokandroll.models.Cart;
 import fr.isen.wokandroll.models.CartItem;
 import fr.isen.wokandroll.models.Option;
-import fr.isen.wokandroll.services.OrderApiService;
+import fr.isen.wokandroll.services.CatalogClient;
+import fr.isen.wokandroll.services.OrderJournal;
+import fr.isen.wokandroll.services.OrderReplayer;
+import fr.isen.wokandroll.services.PendingOrder;
 
 import java.io.IOException;
-import java.io.InputStream;
 
-public class CartController {
+public class CartController implements ViewLifecycle {
 
     @FXML private VBox cartItemsContainer;
     @FXML private Label totalLabel;
     @FXML private Button checkoutButton;
 
-    @FXML
-    public void initialize() {
-        refreshCartDisplay();
+    // État du panier affiché (Cart.getModificationCount), -1 : pas encore affiché
+    private int shownModifications = -1;
+
+    // Écran gardé en mémoire : redessiné seulement si le panier a changé depuis la dernière visite
+    @Override
+    public void onShow() {
+        if (Cart.getInstance().getModificationCount() != shownModifications) refreshCartDisplay();
     }
 
     // =============================================================
@@ -41,6 +48,7 @@ public class CartController {
 
         cartItemsContainer.getChildren().clear();
         Cart cart = Cart.getInstance();
+        shownModifications = cart.getModificationCount();
 
         // Gestion de l'état du bouton "Pay & Order"
         if (checkoutButton != null) {
@@ -173,27 +181,8 @@ public class CartController {
         iv.setFitHeight(size);
         iv.setPreserveRatio(true);
 
-        Image img = null;
-        try (InputStream is = getClass().getResourceAsStream(resourcePath)) {
-            if (is != null) img = new Image(is);
-        } catch (Exception ignored) {}
-
-        if (img == null) {
-            try (InputStream isLogo = getClass().getResourceAsStream(
-                    "/fr/isen/wokandroll/images/logo.jpg")) {
-                if (isLogo != null) img = new Image(isLogo);
-            } catch (Exception ignored) {}
-        }
-
-        if (img != null) {
-            iv.setImage(img);
-            double w = img.getWidth();
-            double h = img.getHeight();
-            double side = Math.min(w, h);
-            iv.setViewport(new Rectangle2D(
-                    (w - side) / 2, (h - side) / 2, side, side
-            ));
-        }
+        // Vignette déjà recadrée ; logo si absente
+        ImageCache.getInstance().loadSquare(iv, resourcePath, size, "/fr/isen/wokandroll/images/logo.jpg");
         return iv;
     }
 
@@ -220,24 +209,48 @@ public class CartController {
             return;
         }
 
-        try {
-            int orderId = OrderApiService.createCommandeWithLinesFromCart(cart);
-
-            cart.clear();
+        // La commande est d'abord écrite dans le journal local : la confirmation ne dépend pas du backend,
+        // l'envoi réel est fait en arrière-plan par OrderReplayer.
+        if (checkoutButton != null) checkoutButton.setDisable(true);
 
-            ConfirmationController.lastOrderId = orderId;
-
-            SceneManager.getInstance().switchScene("confirmation");
+        try {
+            OrderJournal journal = OrderJournal.getInstance();
+            PendingOrder order = journal.newOrder(cart);
+
+            journal.append(order)
+                    .thenRunAsync(() -> {
+                        cart.clear();
+                        ConfirmationController.lastOrderId = order.getTicket();
+                        wakeUpReplayer();
+                        SceneManager.getInstance().switchScene("confirmation");
+                    }, CatalogClient.FX)
+                    .exceptionally(e -> {
+                        Platform.runLater(() -> onCheckoutFailed(e));
+                        return null;
+                    });
+
+        } catch (IOException e) {
+            onCheckoutFailed(e);
+        }
+    }
 
-        } catch (Exception e) {
+    private void wakeUpReplayer() {
+        try {
+            OrderReplayer.getInstance().wakeUp();
+        } catch (IOException e) {
             e.printStackTrace();
-            showErrorAlert(
-                    "Technical error",
-                    "Unable to validate the order.\n\nDetails: " + e.getMessage()
-            );
         }
     }
 
+    private void onCheckoutFailed(Throwable e) {
+        e.printStackTrace();
+        if (checkoutButton != null) checkoutButton.setDisable(false);
+        showErrorAlert(
+                "Technical error",
+                "Unable to validate the order.\n\nDetails: " + e.getMessage()
+        );
+    }
+
     // ==========================
     // Alerts
     // ==========================
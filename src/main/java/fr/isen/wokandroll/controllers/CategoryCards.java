@@ -0,0 +1,115 @@
+package fr.isen.wokandroll.controllers;
+
+import fr.isen.wokandroll.services.CatalogClient;
+import fr.isen.wokandroll.services.CatalogClient.PlatDto;
+import javafx.scene.Node;
+import javafx.scene.layout.Pane;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Cartes d'une catégorie dans une grille, tenues à jour plat par plat : quand la disponibilité
+ * ou le prix d'un plat change, seule sa carte est recréée, ajoutée ou retirée (le reste de l'écran ne bouge pas).
+ * L'abonnement aux changements ne vit que tant que la grille est dans la scène : l'écran reste en mémoire
+ * (SceneManager) et, à son retour, show() ne recrée que les cartes des plats modifiés entre-temps.
+ */
+class CategoryCards {
+
+    private final Pane grid;
+    private final Predicate<PlatDto> visible;
+    private final Function<PlatDto, ? extends Node> factory;
+
+    // Ordre des plats de la catégorie (pour replacer une carte qui réapparaît) et cartes affichées
+    private List<Integer> order = new ArrayList<>();
+    private final Map<Integer, Node> cards = new HashMap<>();
+    // Plat affiché par chaque carte (pour savoir si elle est à jour)
+    private final Map<Integer, PlatDto> shown = new HashMap<>();
+    private CatalogClient.Subscription subscription;
+
+    CategoryCards(Pane grid, Predicate<PlatDto> visible, Function<PlatDto, ? extends Node> factory) {
+        this.grid = grid;
+        this.visible = visible;
+        this.factory = factory;
+
+        if (grid.getScene() != null) subscribe();
+        grid.sceneProperty().addListener((obs, oldScene, newScene) -> {
+            if (newScene != null) {
+                subscribe();
+            } else if (subscription != null) {
+                subscription.cancel();
+                subscription = null;
+            }
+        });
+    }
+
+    private void subscribe() {
+        if (subscription == null) subscription = CatalogClient.getInstance().onPlatChanged(this::update);
+    }
+
+    /**
+     * Affiche la catégorie depuis CatalogClient, à appeler au premier affichage puis à chaque retour sur l'écran :
+     * tout de suite depuis le cache ou le snapshot, puis à nouveau si le réseau apporte du nouveau.
+     */
+    void load(int idCategorie) {
+        CatalogClient.getInstance().loadCategory(idCategorie, this::show);
+    }
+
+    /**
+     * Affiche toute la catégorie (thread JavaFX). Les cartes des plats inchangés sont gardées.
+     */
+    void show(List<PlatDto> plats) {
+        Map<Integer, Node> previous = new HashMap<>(cards);
+        cards.clear();
+        order = new ArrayList<>();
+        List<Node> children = new ArrayList<>();
+        for (PlatDto plat : plats) {
+            order.add(plat.idPlat);
+            if (!visible.test(plat)) continue;
+            Node card = previous.get(plat.idPlat);
+            if (card == null || !plat.equals(shown.get(plat.idPlat))) {
+                card = factory.apply(plat);
+                shown.put(plat.idPlat, plat);
+            }
+            cards.put(plat.idPlat, card);
+            children.add(card);
+        }
+        shown.keySet().retainAll(cards.keySet());
+        if (!children.equals(grid.getChildren())) grid.getChildren().setAll(children);
+    }
+
+    private void update(PlatDto plat) {
+        if (!order.contains(plat.idPlat)) return; // autre catégorie
+
+        Node current = cards.remove(plat.idPlat);
+        shown.remove(plat.idPlat);
+        if (!visible.test(plat)) {
+            if (current != null) grid.getChildren().remove(current);
+            return;
+        }
+
+        Node card = factory.apply(plat);
+        shown.put(plat.idPlat, plat);
+        int index = (current != null) ? grid.getChildren().indexOf(current) : -1;
+        if (index >= 0) {
+            grid.getChildren().set(index, card);
+        } else {
+            grid.getChildren().add(insertionIndex(plat.idPlat), card);
+        }
+        cards.put(plat.idPlat, card);
+    }
+
+    // Position dans la grille : nombre de cartes affichées avant ce plat dans l'ordre de la catégorie
+    private int insertionIndex(int idPlat) {
+        int index = 0;
+        for (int id : order) {
+            if (id == idPlat) break;
+            if (cards.containsKey(id)) index++;
+        }
+        return Math.min(index, grid.getChildren().size());
+    }
+}
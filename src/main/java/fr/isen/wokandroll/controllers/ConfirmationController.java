@@ -5,11 +5,12 @@ import javafx.fxml.FXML;
 import javafx.scene.control.Label;
 import javafx.util.Duration;
 import fr.isen.wokandroll.managers.SceneManager;
+import fr.isen.wokandroll.managers.ViewLifecycle;
 
 import java.io.IOException;
 import java.util.Random;
 
-public class ConfirmationController {
+public class ConfirmationController implements ViewLifecycle {
 
     @FXML private Label orderNumber;
     @FXML private Label estimatedTime;
@@ -17,8 +18,12 @@ public class ConfirmationController {
     // Variable utilisée pour transmettre l'identifiant de la commande depuis CartController
     public static int lastOrderId = 0;
 
-    @FXML
-    public void initialize() {
+    // Retour automatique à l'accueil, arrêté si on quitte l'écran avant
+    private final PauseTransition autoRedirect = new PauseTransition(Duration.seconds(5));
+
+    // Écran gardé en mémoire : chaque affichage correspond à une nouvelle commande
+    @Override
+    public void onShow() {
         // 1. Gestion de l'affichage du numéro de commande
         int idToDisplay = (lastOrderId != 0)
                 ? lastOrderId
@@ -33,15 +38,17 @@ public class ConfirmationController {
         startAutoRedirect();
     }
 
+    @Override
+    public void onHide() {
+        autoRedirect.stop();
+    }
+
     /**
      * Attend 5 secondes puis redirige vers l'écran d'accueil.
      */
     private void startAutoRedirect() {
-        // Durée de 5 secondes
-        PauseTransition delay = new PauseTransition(Duration.seconds(5));
-
         // Action exécutée à la fin du délai imparti
-        delay.setOnFinished(event -> {
+        autoRedirect.setOnFinished(event -> {
             try {
                 // Simule un clic sur « Nouvelle commande » pour revenir à l'accueil
                 newOrder();
@@ -50,8 +57,8 @@ public class ConfirmationController {
             }
         });
 
-        // Lance le timer
-        delay.play();
+        // Lance (ou relance) le timer
+        autoRedirect.playFromStart();
     }
 
     public void setOrderData(int id, String time) {
@@ -1,56 +1,34 @@
 package fr.isen.wokandroll.controllers;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import javafx.fxml.FXML;
-import javafx.geometry.Rectangle2D;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.StackPane;
 import javafx.scene.layout.TilePane;
 import javafx.scene.layout.VBox;
+import fr.isen.wokandroll.managers.ImageCache;
+import fr.isen.wokandroll.managers.ImageResolver;
 import fr.isen.wokandroll.managers.SceneManager;
+import fr.isen.wokandroll.managers.ViewLifecycle;
 import fr.isen.wokandroll.models.Cart;
 import fr.isen.wokandroll.models.Product;
+import fr.isen.wokandroll.services.CatalogClient.PlatDto;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
-import java.text.Normalizer;
-import java.util.Locale;
-import java.util.Objects;
 
-public class DessertController {
+public class DessertController implements ViewLifecycle {
 
     @FXML private Label totalLabel;
     @FXML private TilePane grid;
-
-    // --- DTOs ---
-    public static class CategorieDto {
-        public int idCategorie;
-        public String nom;
-    }
-
-    public static class DessertDto {
-        public int idPlat;
-        public String nom;
-        public String description;
-        public double prix;
-        public boolean disponible;
-        public CategorieDto categorie;
-    }
+    private CategoryCards cards;
 
     // --- Chemins ---
     private static final String BASE_PATH = "/fr/isen/wokandroll/images/desserts/";
     private static final String DEFAULT_IMG = BASE_PATH + "default.png";
 
-    @FXML
-    public void initialize() {
+    @Override
+    public void onShow() {
         loadDessertsFromApi();
         updateTotal();
     }
@@ -67,33 +45,11 @@ public class DessertController {
     // =================================================================================
 
     /**
-     * Transforme le nom du dessert en nom de fichier.
-     * Exemple : "Coconut pearls" -> "coconut pearls" -> "coconutpearls" -> "Coconutpearls.png"
+     * Image du plat d'après son nom ("Coconut pearls" -> coconutpearls.png), voir ImageResolver.
      */
-    private String imageForDessert(DessertDto d) {
-        if (d == null || d.nom == null || d.nom.isBlank()) {
-            return DEFAULT_IMG;
-        }
-
-        // 1. Minuscules
-        String s = d.nom.toLowerCase(Locale.ROOT);
-        // 2. Retire les accents
-        s = Normalizer.normalize(s, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
-        // 3. Garde uniquement les lettres
-        s = s.replaceAll("[^a-z]", "");
-
-        if (s.isEmpty()) return DEFAULT_IMG;
-
-        // 4. Première lettre majuscule
-        String fileName = Character.toUpperCase(s.charAt(0)) + s.substring(1);
-        String finalPath = BASE_PATH + fileName + ".png";
-
-        // 5. Vérifie si le fichier existe
-        if (getClass().getResource(finalPath) != null) {
-            return finalPath;
-        }
-
-        return DEFAULT_IMG;
+    private String imageForDessert(PlatDto d) {
+        String path = (d != null) ? ImageResolver.getInstance().resolve(4, d.nom) : null;
+        return (path != null) ? path : DEFAULT_IMG;
     }
 
     /**
@@ -106,25 +62,8 @@ public class DessertController {
         imgView.setFitHeight(size);
         imgView.setPreserveRatio(true);
 
-        Image img = null;
-        try (InputStream is = getClass().getResourceAsStream(resourcePath)) {
-            img = new Image(Objects.requireNonNull(is));
-        } catch (Exception e) {
-            // Fallback sur le logo si l'image par défaut manque aussi
-            try (InputStream is2 = getClass().getResourceAsStream("/fr/isen/wokandroll/images/logo.jpg")) {
-                if (is2 != null) img = new Image(is2);
-            } catch (Exception ignored) {}
-        }
-
-        if (img != null) {
-            imgView.setImage(img);
-            double w = img.getWidth();
-            double h = img.getHeight();
-            double side = Math.min(w, h);
-            // Centrage
-            imgView.setViewport(new Rectangle2D((w - side) / 2.0, (h - side) / 2.0, side, side));
-        }
-
+        // Vignette déjà recadrée (centrage) ; logo si absente
+        ImageCache.getInstance().loadSquare(imgView, resourcePath, size, "/fr/isen/wokandroll/images/logo.jpg");
         return imgView;
     }
 
@@ -134,46 +73,17 @@ public class DessertController {
 
     private void loadDessertsFromApi() {
         if (grid == null) return;
-        grid.getChildren().clear();
 
-        HttpURLConnection conn = null;
-        try {
-            URL url = new URL("http://localhost:7001/categories/4/plats");
-            conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-            conn.setRequestProperty("Accept", "application/json");
-
-            if (conn.getResponseCode() != HttpURLConnection.HTTP_OK) {
-                System.err.println("Erreur API : HTTP " + conn.getResponseCode());
-                return;
-            }
-
-            try (InputStream is = conn.getInputStream();
-                 InputStreamReader reader = new InputStreamReader(is, StandardCharsets.UTF_8)) {
-
-                Gson gson = new GsonBuilder().create();
-                DessertDto[] desserts = gson.fromJson(reader, DessertDto[].class);
-
-                if (desserts != null) {
-                    for (DessertDto d : desserts) {
-                        if (d.disponible) {
-                            grid.getChildren().add(createDessertCard(d));
-                        }
-                    }
-                }
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        } finally {
-            if (conn != null) conn.disconnect();
-        }
+        // Catégorie 4 = Desserts (cartes tenues à jour par CategoryCards)
+        if (cards == null) cards = new CategoryCards(grid, d -> d.disponible, this::createDessertCard);
+        cards.load(4);
     }
 
     // =================================================================================
     // CRÉATION UI
     // =================================================================================
 
-    private StackPane createDessertCard(DessertDto d) {
+    private StackPane createDessertCard(PlatDto d) {
         StackPane root = new StackPane();
 
         Button btn = new Button();
@@ -212,12 +122,12 @@ public class DessertController {
         Button clickedButton = (Button) event.getSource();
 
         String imagePath = DEFAULT_IMG;
-        DessertDto d = null;
+        PlatDto d = null;
 
         try {
             Object[] data = (Object[]) clickedButton.getUserData();
             imagePath = (String) data[0];
-            d = (DessertDto) data[1];
+            d = (PlatDto) data[1];
         } catch (Exception ignored) {}
 
         String name = (d != null && d.nom != null) ? d.nom : "Dessert";
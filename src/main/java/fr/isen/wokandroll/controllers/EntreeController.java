@@ -1,57 +1,35 @@
 package fr.isen.wokandroll.controllers;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.geometry.Rectangle2D;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.StackPane;
 import javafx.scene.layout.TilePane;
 import javafx.scene.layout.VBox;
+import fr.isen.wokandroll.managers.ImageCache;
+import fr.isen.wokandroll.managers.ImageResolver;
 import fr.isen.wokandroll.managers.SceneManager;
+import fr.isen.wokandroll.managers.ViewLifecycle;
 import fr.isen.wokandroll.models.Cart;
 import fr.isen.wokandroll.models.Product;
+import fr.isen.wokandroll.services.CatalogClient.PlatDto;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
-import java.text.Normalizer;
-import java.util.Locale;
-import java.util.Objects;
 
-public class EntreeController {
+public class EntreeController implements ViewLifecycle {
 
     @FXML private Label totalLabel;
     @FXML private TilePane grid;
-
-    // --- DTOs ---
-    private static class CategorieDto {
-        int idCategorie;
-        String nom;
-    }
-
-    private static class PlatDto {
-        int idPlat;
-        String nom;
-        String description;
-        double prix;
-        boolean disponible;
-        CategorieDto categorie;
-    }
+    private CategoryCards cards;
 
     // --- Chemins Images ---
     private static final String BASE_PATH = "/fr/isen/wokandroll/images/entrees/";
     private static final String DEFAULT_IMG = BASE_PATH + "default.png";
 
-    @FXML
-    public void initialize() {
+    @Override
+    public void onShow() {
         loadEntreesFromApi();
         updateTotal();
     }
@@ -68,33 +46,11 @@ public class EntreeController {
     // =================================================================================
 
     /**
-     * Transforme "Chicken gyoza" -> "Chickengyoza.png" et vérifie si le fichier existe.
+     * Image du plat d'après son nom ("Chicken gyoza" -> Chickengyoza.png), voir ImageResolver.
      */
     private String imageForPlat(PlatDto plat) {
-        if (plat == null || plat.nom == null || plat.nom.isBlank()) {
-            return DEFAULT_IMG;
-        }
-
-        // 1. Minuscules
-        String s = plat.nom.toLowerCase(Locale.ROOT);
-        // 2. Retire les accents
-        s = Normalizer.normalize(s, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
-        // 3. Garde lettres + espaces
-        s = s.replaceAll("[^a-z ]", " ");
-        // 4. Enlève les espaces
-        s = s.replaceAll("\\s+", "").trim();
-
-        if (s.isEmpty()) return DEFAULT_IMG;
-
-        // 5. Première lettre majuscule
-        String fileName = Character.toUpperCase(s.charAt(0)) + s.substring(1);
-        String imagePath = BASE_PATH + fileName + ".png";
-
-        // 6. Vérification existence
-        if (getClass().getResource(imagePath) != null) {
-            return imagePath;
-        }
-        return DEFAULT_IMG;
+        String path = (plat != null) ? ImageResolver.getInstance().resolve(1, plat.nom) : null;
+        return (path != null) ? path : DEFAULT_IMG;
     }
 
     /**
@@ -107,25 +63,8 @@ public class EntreeController {
         imgView.setFitHeight(size);
         imgView.setPreserveRatio(true);
 
-        Image img = null;
-        try (InputStream is = getClass().getResourceAsStream(resourcePath)) {
-            img = new Image(Objects.requireNonNull(is));
-        } catch (Exception e) {
-            // Fallback logo
-            try (InputStream is2 = getClass().getResourceAsStream("/fr/isen/wokandroll/images/logo.jpg")) {
-                if (is2 != null) img = new Image(is2);
-            } catch (Exception ignored) {}
-        }
-
-        if (img != null) {
-            imgView.setImage(img);
-            double w = img.getWidth();
-            double h = img.getHeight();
-            double side = Math.min(w, h);
-            // Crop centré
-            imgView.setViewport(new Rectangle2D((w - side) / 2.0, (h - side) / 2.0, side, side));
-        }
-
+        // Vignette déjà recadrée (crop centré) ; logo si absente
+        ImageCache.getInstance().loadSquare(imgView, resourcePath, size, "/fr/isen/wokandroll/images/logo.jpg");
         return imgView;
     }
 
@@ -135,40 +74,10 @@ public class EntreeController {
 
     private void loadEntreesFromApi() {
         if (grid == null) return;
-        grid.getChildren().clear();
 
-        HttpURLConnection conn = null;
-        try {
-            // Catégorie 1 = Entrées
-            URL url = new URL("http://localhost:7001/categories/1/plats");
-            conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-            conn.setRequestProperty("Accept", "application/json");
-
-            if (conn.getResponseCode() != HttpURLConnection.HTTP_OK) {
-                System.err.println("Erreur API : HTTP " + conn.getResponseCode());
-                return;
-            }
-
-            try (InputStream is = conn.getInputStream();
-                 InputStreamReader reader = new InputStreamReader(is, StandardCharsets.UTF_8)) {
-
-                Gson gson = new GsonBuilder().create();
-                PlatDto[] plats = gson.fromJson(reader, PlatDto[].class);
-
-                if (plats != null) {
-                    for (PlatDto plat : plats) {
-                        if (plat.disponible) {
-                            grid.getChildren().add(createEntreeCard(plat));
-                        }
-                    }
-                }
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        } finally {
-            if (conn != null) conn.disconnect();
-        }
+        // Catégorie 1 = Entrées (cartes tenues à jour par CategoryCards)
+        if (cards == null) cards = new CategoryCards(grid, plat -> plat.disponible, this::createEntreeCard);
+        cards.load(1);
     }
 
     // =================================================================================
@@ -1,57 +1,35 @@
 package fr.isen.wokandroll.controllers;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.geometry.Rectangle2D;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.StackPane;
 import javafx.scene.layout.TilePane;
 import javafx.scene.layout.VBox;
+import fr.isen.wokandroll.managers.ImageCache;
+import fr.isen.wokandroll.managers.ImageResolver;
 import fr.isen.wokandroll.managers.SceneManager;
+import fr.isen.wokandroll.managers.ViewLifecycle;
 import fr.isen.wokandroll.models.Cart;
 import fr.isen.wokandroll.models.Product;
+import fr.isen.wokandroll.services.CatalogClient.PlatDto;
 
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.IOException;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
-import java.text.Normalizer;
-import java.util.Locale;
-import java.util.Objects;
 
-public class PlatsController {
+public class PlatsController implements ViewLifecycle {
 
     @FXML private Label totalLabel;
     @FXML private TilePane grid;
-
-    // --- DTOs ---
-    public static class CategorieDto {
-        public int idCategorie;
-        public String nom;
-    }
-
-    public static class PlatDto {
-        public int idPlat;
-        public String nom;
-        public String description;
-        public double prix;
-        public boolean disponible;
-        public CategorieDto categorie;
-    }
+    private CategoryCards cards;
 
     // --- Chemins Images ---
     private static final String BASE_PATH = "/fr/isen/wokandroll/images/plats/";
     private static final String DEFAULT_IMG = BASE_PATH + "default.png";
 
-    @FXML
-    public void initialize() {
+    @Override
+    public void onShow() {
         loadPlatsFromApi();
         updateTotal();
     }
@@ -68,33 +46,11 @@ public class PlatsController {
     // =================================================================================
 
     /**
-     * Transforme "Beef lok lak" -> "Beefloklak.png" et vérifie s'il existe.
+     * Image du plat d'après son nom ("Beef lok lak" -> Beefloklak.png), voir ImageResolver.
      */
     private String imageForPlat(PlatDto plat) {
-        if (plat == null || plat.nom == null || plat.nom.isBlank()) {
-            return DEFAULT_IMG;
-        }
-
-        // 1. Minuscules
-        String s = plat.nom.toLowerCase(Locale.ROOT);
-        // 2. Retire les accents
-        s = Normalizer.normalize(s, Normalizer.Form.NFD).replaceAll("\\p{M}", "");
-        // 3. Garde lettres + espaces
-        s = s.replaceAll("[^a-z ]", " ");
-        // 4. Enlève les espaces
-        s = s.replaceAll("\\s+", "").trim();
-
-        if (s.isEmpty()) return DEFAULT_IMG;
-
-        // 5. Première lettre majuscule
-        String fileName = Character.toUpperCase(s.charAt(0)) + s.substring(1);
-        String imagePath = BASE_PATH + fileName + ".png";
-
-        // 6. Vérifie si le fichier existe
-        if (getClass().getResource(imagePath) != null) {
-            return imagePath;
-        }
-        return DEFAULT_IMG;
+        String path = (plat != null) ? ImageResolver.getInstance().resolve(2, plat.nom) : null;
+        return (path != null) ? path : DEFAULT_IMG;
     }
 
     /**
@@ -107,24 +63,8 @@ public class PlatsController {
         imgView.setFitHeight(size);
         imgView.setPreserveRatio(true);
 
-        Image img = null;
-        try (InputStream is = getClass().getResourceAsStream(resourcePath)) {
-            img = new Image(Objects.requireNonNull(is));
-        } catch (Exception e) {
-            // Fallback logo
-            try (InputStream is2 = getClass().getResourceAsStream("/fr/isen/wokandroll/images/logo.jpg")) {
-                if (is2 != null) img = new Image(is2);
-            } catch (Exception ignored) {}
-        }
-
-        if (img != null) {
-            imgView.setImage(img);
-            double w = img.getWidth();
-            double h = img.getHeight();
-            double side = Math.min(w, h);
-            // Crop centré
-            imgView.setViewport(new Rectangle2D((w - side) / 2.0, (h - side) / 2.0, side, side));
-        }
+        // Vignette déjà recadrée (crop centré) ; logo si absente
+        ImageCache.getInstance().loadSquare(imgView, resourcePath, size, "/fr/isen/wokandroll/images/logo.jpg");
         return imgView;
     }
 
@@ -134,38 +74,11 @@ public class PlatsController {
 
     private void loadPlatsFromApi() {
         if (grid == null) return;
-        grid.getChildren().clear();
 
-        HttpURLConnection conn = null;
-        try {
-            // Catégorie 2 = Plats Principaux
-            URL url = new URL("http://localhost:7001/categories/2/plats");
-            conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-            conn.setRequestProperty("Accept", "application/json");
-
-            if (conn.getResponseCode() != HttpURLConnection.HTTP_OK) {
-                System.err.println("Erreur API : HTTP " + conn.getResponseCode());
-                return;
-            }
-
-            try (InputStream is = conn.getInputStream();
-                 InputStreamReader reader = new InputStreamReader(is, StandardCharsets.UTF_8)) {
-
-                Gson gson = new GsonBuilder().create();
-                PlatDto[] plats = gson.fromJson(reader, PlatDto[].class);
-
-                if (plats != null) {
-                    for (PlatDto plat : plats) {
-                        grid.getChildren().add(createPlatCard(plat));
-                    }
-                }
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        } finally {
-            if (conn != null) conn.disconnect();
-        }
+        // Catégorie 2 = Plats Principaux (cartes tenues à jour par CategoryCards) ;
+        // les plats indisponibles restent affichés, le détail indique "Unavailable"
+        if (cards == null) cards = new CategoryCards(grid, plat -> true, this::createPlatCard);
+        cards.load(2);
     }
 
     // =================================================================================
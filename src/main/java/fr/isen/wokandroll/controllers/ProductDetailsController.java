@@ -1,29 +1,26 @@
 package fr.isen.wokandroll.controllers;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.scene.Node;
 import javafx.scene.control.*;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
+import fr.isen.wokandroll.managers.ImageCache;
 import fr.isen.wokandroll.models.Cart;
 import fr.isen.wokandroll.models.Option;
 import fr.isen.wokandroll.models.Product;
+import fr.isen.wokandroll.services.CatalogClient;
 
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.IOException;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 public class ProductDetailsController {
 
+    private static final String LOGO = "/fr/isen/wokandroll/images/logo.jpg";
+
     @FXML private ImageView productImage;
     @FXML private Label productName;
     @FXML private Label productPrice;
@@ -39,7 +36,20 @@ public class ProductDetailsController {
 
     private final List<ButtonBase> optionControls = new ArrayList<>();
 
+    // Popup réutilisé d'un produit à l'autre (SceneManager) : les contrôles des options sont recyclés
+    private static final int PREWARMED_CHECKBOXES = 8;
+    private static final int PREWARMED_RADIOS = 4;
+    private final Deque<CheckBox> checkBoxPool = new ArrayDeque<>();
+    private final Deque<RadioButton> radioPool = new ArrayDeque<>();
+    private final Deque<VBox> groupPool = new ArrayDeque<>();
+    private final List<VBox> groupsInUse = new ArrayList<>();
+
     private Label optionsTitleLabel;
+    // Numéro du dernier chargement d'options (même produit rouvert : l'ancienne réponse est ignorée)
+    private int optionsRequests = 0;
+
+    // Changements de disponibilité / prix du plat affiché, tant que le popup est ouvert
+    private CatalogClient.Subscription platChanges;
 
     @FXML
     public void initialize() {
@@ -51,28 +61,38 @@ public class ProductDetailsController {
         }
     }
 
+    /**
+     * Crée d'avance les contrôles des options et leur applique le CSS (popup déjà dans sa scène),
+     * pour que la première ouverture n'ait rien à construire.
+     */
+    public void prewarm() {
+        if (optionsContainer == null) return;
+        VBox group = takeGroup("SIDE");
+        for (int i = 0; i < PREWARMED_CHECKBOXES; i++) group.getChildren().add(newCheckBox());
+        for (int i = 0; i < PREWARMED_RADIOS; i++) group.getChildren().add(newRadioButton());
+        optionsContainer.getChildren().add(group);
+        optionsContainer.applyCss();
+        for (Node node : group.getChildren()) {
+            if (node instanceof CheckBox cb) checkBoxPool.push(cb);
+            else if (node instanceof RadioButton rb) radioPool.push(rb);
+        }
+        releaseOptions();
+        optionsContainer.getChildren().setAll(optionsTitleLabel);
+    }
+
+    /**
+     * Affiche le produit dans le popup, remis à zéro (quantité, options cochées, prix).
+     */
     public void setProduct(Product product) {
         this.product = product;
         this.basePrice = product.getPrice();
+        optionsRequests++;
+        releaseOptions();
         this.quantity = 1;
         quantityLabel.setText("1");
         productName.setText(product.getName());
 
-        if (!product.isAvailable()) {
-            productPrice.setText("Unavailable");
-            productPrice.setStyle("-fx-font-size: 20px; -fx-font-weight: bold; -fx-text-fill: red;");
-            if (addToCartBtn != null) {
-                addToCartBtn.setDisable(true);
-                addToCartBtn.setText("Out of stock");
-            }
-        } else {
-            productPrice.setText(String.format("%.2f €", basePrice));
-            productPrice.setStyle("-fx-font-size: 20px; -fx-font-weight: bold; -fx-text-fill: #e46725;");
-            if (addToCartBtn != null) {
-                addToCartBtn.setDisable(false);
-                addToCartBtn.setText("Add to cart");
-            }
-        }
+        showAvailability();
 
         if (product.getDescription() != null && !product.getDescription().isEmpty()) {
             productDescription.setText(product.getDescription());
@@ -82,70 +102,110 @@ public class ProductDetailsController {
 
         loadImage(product.getImageUrl());
 
+        if (hasOptions() && product.isAvailable()) {
+            loadOptionsFromApi(product.getId());
+        } else if (optionsContainer != null) {
+            optionsContainer.getChildren().clear();
+        }
+
+        if (platChanges != null) platChanges.cancel();
+        platChanges = CatalogClient.getInstance().onPlatChanged(this::onPlatChanged);
+    }
+
+    /**
+     * À appeler à la fermeture du popup : plus de mises à jour en direct.
+     */
+    public void detach() {
+        if (platChanges != null) platChanges.cancel();
+        platChanges = null;
+    }
+
+    private boolean hasOptions() {
         String category = product.getCategory();
         boolean isExcluded = category != null && (
                 category.toLowerCase().contains("dessert") ||
                         category.toLowerCase().contains("boisson") ||
                         category.toLowerCase().contains("drink")
         );
+        return !isExcluded;
+    }
 
-        if (isExcluded) {
-            if (optionsContainer != null) optionsContainer.getChildren().clear();
+    private void showAvailability() {
+        if (!product.isAvailable()) {
+            productPrice.setText("Unavailable");
+            productPrice.setStyle("-fx-font-size: 20px; -fx-font-weight: bold; -fx-text-fill: red;");
+            if (addToCartBtn != null) {
+                addToCartBtn.setDisable(true);
+                addToCartBtn.setText("Out of stock");
+            }
         } else {
-            if (product.isAvailable()) {
-                loadOptionsFromApi(product.getId());
-            } else if (optionsContainer != null) {
-                optionsContainer.getChildren().clear();
+            productPrice.setText(String.format("%.2f €", basePrice + computeSelectedOptionsExtra()));
+            productPrice.setStyle("-fx-font-size: 20px; -fx-font-weight: bold; -fx-text-fill: #e46725;");
+            if (addToCartBtn != null) {
+                addToCartBtn.setDisable(false);
+                addToCartBtn.setText("Add to cart");
             }
         }
     }
 
-    private void loadImage(String url) {
-        try {
-            if (url != null && !url.isBlank()) {
-                InputStream is = getClass().getResourceAsStream(url);
-                if (is != null) productImage.setImage(new Image(is));
-                else loadDefaultImage();
-            } else loadDefaultImage();
-        } catch (Exception e) { loadDefaultImage(); }
+    /**
+     * Le plat affiché vient d'être épuisé, remis en vente ou a changé de prix (thread JavaFX).
+     */
+    private void onPlatChanged(CatalogClient.PlatDto plat) {
+        if (product == null || plat.idPlat != product.getId()) return;
+        boolean wasAvailable = product.isAvailable();
+
+        product = new Product(product.getId(), product.getName(), product.getDescription(), plat.prix,
+                product.getImageUrl(), product.getCategory(), plat.disponible);
+        basePrice = plat.prix;
+        showAvailability();
+
+        // Remis en vente : les options n'avaient pas été chargées
+        if (!wasAvailable && plat.disponible && hasOptions() && optionControls.isEmpty()) {
+            loadOptionsFromApi(plat.idPlat);
+        }
     }
 
-    private void loadDefaultImage() {
-        try (InputStream is = getClass().getResourceAsStream("/fr/isen/wokandroll/images/logo.jpg")) {
-            if (is != null) productImage.setImage(new Image(is));
-        } catch (IOException ignored) {}
+    private void loadImage(String url) {
+        // Décodée à la taille du cadre, partagée entre les ouvertures de la fenêtre
+        ImageCache.getInstance().loadFitted(productImage, url, productImage.getFitWidth(), productImage.getFitHeight(), LOGO);
     }
 
     private void loadOptionsFromApi(int platId) {
         if (optionsContainer == null) return;
+        releaseOptions();
         optionsContainer.getChildren().setAll(optionsTitleLabel);
-        optionControls.clear(); // On vide la nouvelle liste
-
-        HttpURLConnection conn = null;
-        try {
-            URL url = new URL("http://localhost:7001/plats/" + platId + "/options");
-            conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("GET");
-            conn.setRequestProperty("Accept", "application/json");
-
-            if (conn.getResponseCode() != HttpURLConnection.HTTP_OK) return;
-
-            try (InputStream is = conn.getInputStream();
-                 InputStreamReader reader = new InputStreamReader(is, StandardCharsets.UTF_8)) {
-                Gson gson = new GsonBuilder().create();
-                Option[] options = gson.fromJson(reader, Option[].class);
-                if (options != null && options.length > 0) {
-                    displayOptions(options);
-                }
-            }
-        } catch (Exception e) {
-            System.err.println("Error loading options: " + e.getMessage());
-        } finally {
-            if (conn != null) conn.disconnect();
+        int request = ++optionsRequests;
+
+        // Options préchargées au démarrage : affichage immédiat, sans réseau
+        List<Option> cached = CatalogClient.getInstance().cachedOptions(platId);
+        if (cached != null) {
+            if (!cached.isEmpty()) displayOptions(cached);
+            return;
         }
+
+        // Pas encore en cache : le popup s'affiche tout de suite, les options arrivent ensuite
+        Label loadingLabel = new Label("Loading options...");
+        loadingLabel.setStyle("-fx-text-fill: #999; -fx-font-style: italic;");
+        optionsContainer.getChildren().add(loadingLabel);
+
+        CatalogClient.getInstance().fetchOptions(platId)
+                .thenAcceptAsync(options -> {
+                    // Ignore une réponse arrivée après un changement de produit (ou une réouverture)
+                    if (request != optionsRequests) return;
+                    optionsContainer.getChildren().remove(loadingLabel);
+                    if (!options.isEmpty()) {
+                        displayOptions(options);
+                    }
+                }, CatalogClient.FX)
+                .exceptionally(e -> {
+                    System.err.println("Error loading options: " + e.getMessage());
+                    Platform.runLater(() -> optionsContainer.getChildren().remove(loadingLabel));
+                    return null;
+                });
     }
 
-    private void displayOptions(Option[] options) {
+    private void displayOptions(List<Option> options) {
         Map<String, VBox> groups = new LinkedHashMap<>();
         Map<String, ToggleGroup> toggleGroups = new HashMap<>();
 
@@ -155,12 +215,7 @@ public class ProductDetailsController {
 
             VBox groupBox = groups.get(typeKey);
             if (groupBox == null) {
-                groupBox = new VBox(5);
-                groupBox.setAlignment(Pos.CENTER_LEFT);
-                groupBox.setPadding(new Insets(10, 0, 5, 0));
-                Label groupLabel = new Label(getLabelForType(typeKey));
-                groupLabel.setStyle("-fx-font-weight: bold; -fx-text-fill: #555;");
-                groupBox.getChildren().add(groupLabel);
+                groupBox = takeGroup(typeKey);
                 groups.put(typeKey, groupBox);
                 optionsContainer.getChildren().add(groupBox);
             }
@@ -169,7 +224,7 @@ public class ProductDetailsController {
 
             if ("SPICE_LEVEL".equals(typeKey)) {
                 // Pour le piment, on utilise un RadioButton
-                RadioButton rb = new RadioButton(formatOptionLabel(opt));
+                RadioButton rb = radioPool.isEmpty() ? newRadioButton() : radioPool.pop();
 
                 // On récupère ou crée le groupe pour ce type d'option
                 ToggleGroup tg = toggleGroups.computeIfAbsent(typeKey, k -> new ToggleGroup());
@@ -178,17 +233,70 @@ public class ProductDetailsController {
                 selector = rb;
             } else {
                 // Pour le reste, on garde la CheckBox
-                selector = new CheckBox(formatOptionLabel(opt));
+                selector = checkBoxPool.isEmpty() ? newCheckBox() : checkBoxPool.pop();
             }
 
+            selector.setText(formatOptionLabel(opt));
             selector.setUserData(opt);
-            selector.setOnAction(e -> updateDisplayedPrice());
 
             groupBox.getChildren().add(selector);
             optionControls.add(selector); // On ajoute à la liste générique
         }
     }
 
+    // ========================
+    //   RECYCLAGE DES OPTIONS
+    // ========================
+
+    private CheckBox newCheckBox() {
+        CheckBox cb = new CheckBox();
+        cb.setOnAction(e -> updateDisplayedPrice());
+        return cb;
+    }
+
+    private RadioButton newRadioButton() {
+        RadioButton rb = new RadioButton();
+        rb.setOnAction(e -> updateDisplayedPrice());
+        return rb;
+    }
+
+    // Bloc d'un type d'option : titre (premier enfant, gardé au recyclage) puis contrôles
+    private VBox takeGroup(String typeKey) {
+        VBox groupBox = groupPool.poll();
+        if (groupBox == null) {
+            groupBox = new VBox(5);
+            groupBox.setAlignment(Pos.CENTER_LEFT);
+            groupBox.setPadding(new Insets(10, 0, 5, 0));
+            Label groupLabel = new Label();
+            groupLabel.setStyle("-fx-font-weight: bold; -fx-text-fill: #555;");
+            groupBox.getChildren().add(groupLabel);
+        }
+        ((Label) groupBox.getChildren().get(0)).setText(getLabelForType(typeKey));
+        groupsInUse.add(groupBox);
+        return groupBox;
+    }
+
+    // Remet les contrôles affichés dans les pools, décochés et sans option
+    private void releaseOptions() {
+        for (ButtonBase control : optionControls) {
+            control.setUserData(null);
+            if (control instanceof RadioButton rb) {
+                rb.setSelected(false);
+                rb.setToggleGroup(null);
+                radioPool.push(rb);
+            } else if (control instanceof CheckBox cb) {
+                cb.setSelected(false);
+                checkBoxPool.push(cb);
+            }
+        }
+        optionControls.clear();
+        for (VBox groupBox : groupsInUse) {
+            groupBox.getChildren().remove(1, groupBox.getChildren().size());
+            groupPool.push(groupBox);
+        }
+        groupsInUse.clear();
+    }
+
     private String getLabelForType(String typeKey) {
         return switch (typeKey) {
             case "SPICE_LEVEL" -> "Spice level:";
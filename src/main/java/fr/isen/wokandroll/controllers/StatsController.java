@@ -1,61 +1,192 @@
 package fr.isen.wokandroll.controllers;
 
-import javafx.application.Platform;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.fxml.FXML;
 import javafx.scene.control.Label;
 import javafx.scene.layout.VBox;
+import javafx.util.Duration;
+import fr.isen.wokandroll.managers.ImageResolver;
 import fr.isen.wokandroll.managers.SceneManager;
+import fr.isen.wokandroll.managers.ViewLifecycle;
 import fr.isen.wokandroll.models.Product;
-import fr.isen.wokandroll.services.OrderApiService;
+import fr.isen.wokandroll.services.ApiMetrics;
+import fr.isen.wokandroll.services.ApiResult;
+import fr.isen.wokandroll.services.LocalStatsEngine;
+import fr.isen.wokandroll.services.StatsService;
+import fr.isen.wokandroll.services.StatsService.Stats;
 
 import java.io.IOException;
-import java.util.List;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 
-public class StatsController {
+public class StatsController implements ViewLifecycle {
 
     @FXML private Label nbCommandesLabel;
     @FXML private Label panierMoyenLabel;
+    @FXML private Label lastUpdateLabel;
     @FXML private VBox bestSellersList;
 
-    private final OrderApiService apiService = new OrderApiService();
+    // Section "Cette borne" (statistiques locales, sans réseau)
+    @FXML private Label localNbCommandesLabel;
+    @FXML private Label localPanierMoyenLabel;
+    @FXML private VBox localBestSellersList;
 
-    @FXML
-    public void initialize() {
-        // Lancer le chargement dans un thread séparé
-        new Thread(this::loadStats).start();
+    // Overlay caché des mesures réseau
+    @FXML private VBox metricsOverlay;
+    @FXML private Label metricsLabel;
+
+    private static final int TOP_AFFICHES = 5;
+    private static final DateTimeFormatter HEURE = DateTimeFormatter.ofPattern("HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    private static final int TAPS_FOR_OVERLAY = 5;
+    private static final long TAP_WINDOW_MS = 2_000;
+
+    private StatsService.AutoRefresh autoRefresh;
+    private final Timeline metricsRefresh = new Timeline(new KeyFrame(Duration.seconds(1), e -> refreshMetrics()));
+    private int titleTaps = 0;
+    private long firstTapAt = 0;
+
+    // Écran gardé en mémoire : chiffres remis à jour et rafraîchissement relancé à chaque affichage
+    @Override
+    public void onShow() {
+        // 0. Chiffres de la borne : calculés localement, affichés sans attendre
+        displayLocalStats();
+
+        StatsService stats = StatsService.getInstance();
+
+        // 1. Dernières valeurs connues tout de suite (pendant que le réseau répond)
+        Stats last = stats.getLast();
+        if (last != null) {
+            displayStats(last);
+        }
+
+        // 2. Rafraîchissement automatique tant que l'écran est affiché
+        autoRefresh = stats.startAutoRefresh(this::displayResult);
+        if (metricsOverlay.isVisible()) {
+            refreshMetrics();
+            metricsRefresh.play();
+        }
     }
 
-    private void loadStats() {
-        // 1. Appels réseaux (bloquants)
-        long nbCommandes = apiService.getNombreCommandes();
-        double panierMoyen = apiService.getPanierMoyen();
-        List<Product> topPlats = apiService.getTopPlats();
-
-        // 2. Mise à jour de l'interface (Thread JavaFX)
-        Platform.runLater(() -> {
-            // Affichage des chiffres
-            nbCommandesLabel.setText(String.valueOf(nbCommandes));
-            panierMoyenLabel.setText(String.format("%.2f €", panierMoyen));
-
-            // Affichage de la liste
-            bestSellersList.getChildren().clear();
-
-            if (topPlats.isEmpty()) {
-                Label emptyLabel = new Label("Aucune donnée disponible.");
-                emptyLabel.setStyle("-fx-text-fill: #999; -fx-font-style: italic;");
-                bestSellersList.getChildren().add(emptyLabel);
-            } else {
-                int rank = 1;
-                for (Product plat : topPlats) {
-                    // Format du texte : "1. Nom du Plat - 12.50 €"
-                    String text = String.format("#%d  %s  -  %.2f €", rank++, plat.getName(), plat.getPrice());
-
-                    Label l = new Label(text);
-                    l.setStyle("-fx-font-size: 16px; -fx-text-fill: #333; -fx-padding: 5; -fx-font-weight: bold;");
-                    bestSellersList.getChildren().add(l);
-                }
+    // 3. Quand on quitte l'écran, on arrête le rafraîchissement
+    @Override
+    public void onHide() {
+        if (autoRefresh != null) autoRefresh.cancel();
+        metricsRefresh.stop();
+    }
+
+    private void displayStats(Stats stats) {
+        // Des commandes ont pu être envoyées depuis le dernier rafraîchissement
+        displayLocalStats();
+
+        // Affichage des chiffres
+        nbCommandesLabel.setText(String.valueOf(stats.nombreCommandes));
+        panierMoyenLabel.setText(String.format("%.2f €", stats.panierMoyen));
+        lastUpdateLabel.setText("Mis à jour à " + HEURE.format(Instant.ofEpochMilli(stats.fetchedAt)));
+
+        // Affichage de la liste
+        bestSellersList.getChildren().clear();
+
+        if (stats.topPlats.isEmpty()) {
+            Label emptyLabel = new Label("Aucune donnée disponible.");
+            emptyLabel.setStyle("-fx-text-fill: #999; -fx-font-style: italic;");
+            bestSellersList.getChildren().add(emptyLabel);
+        } else {
+            int rank = 1;
+            for (Product plat : stats.topPlats) {
+                // Format du texte : "1. Nom du Plat - 12.50 €"
+                String text = String.format("#%d  %s  -  %.2f €", rank++, plat.getName(), plat.getPrice());
+
+                Label l = new Label(text);
+                l.setStyle("-fx-font-size: 16px; -fx-text-fill: #333; -fx-padding: 5; -fx-font-weight: bold;");
+                bestSellersList.getChildren().add(l);
             }
-        });
+        }
+    }
+
+    private void displayLocalStats() {
+        LocalStatsEngine.Snapshot local;
+        try {
+            local = LocalStatsEngine.getInstance().snapshot();
+        } catch (IOException e) {
+            System.err.println("Statistiques locales indisponibles : " + e.getMessage());
+            return;
+        }
+
+        localNbCommandesLabel.setText(String.valueOf(local.nombreCommandes));
+        localPanierMoyenLabel.setText(String.format("%.2f €", local.panierMoyen));
+
+        localBestSellersList.getChildren().clear();
+        if (local.topPlats.isEmpty()) {
+            Label emptyLabel = new Label("Aucune commande sur cette borne.");
+            emptyLabel.setStyle("-fx-text-fill: #999; -fx-font-style: italic;");
+            localBestSellersList.getChildren().add(emptyLabel);
+            return;
+        }
+
+        int rank = 1;
+        for (LocalStatsEngine.TopDish plat : local.topPlats) {
+            if (rank > TOP_AFFICHES) break;
+            // Quantité estimée ("≈") si le plat a remplacé un autre dans le top-k
+            String text = String.format("#%d  %s  -  %s%d vendus", rank++, plat.nom, plat.erreur > 0 ? "≈ " : "", plat.quantite);
+
+            Label l = new Label(text);
+            l.setStyle("-fx-font-size: 16px; -fx-text-fill: #333; -fx-padding: 5; -fx-font-weight: bold;");
+            localBestSellersList.getChildren().add(l);
+        }
+    }
+
+    private void displayResult(ApiResult<Stats> result) {
+        switch (result.getStatus()) {
+            case FRESH:
+                displayStats(result.getValue());
+                break;
+            case STALE:
+                System.err.println("Statistiques indisponibles : " + result.getError());
+                displayLocalStats();
+                lastUpdateLabel.setText("Backend injoignable - données de "
+                        + HEURE.format(Instant.ofEpochMilli(result.getValue().fetchedAt)));
+                break;
+            default:
+                System.err.println("Statistiques indisponibles : " + result.getError());
+                displayLocalStats();
+                lastUpdateLabel.setText("Backend injoignable - nouvel essai automatique");
+        }
+    }
+
+    // ========================
+    //    MESURES (diagnostic)
+    // ========================
+
+    @FXML
+    public void onTitleClicked() {
+        long now = System.currentTimeMillis();
+        if (now - firstTapAt > TAP_WINDOW_MS) {
+            firstTapAt = now;
+            titleTaps = 0;
+        }
+        if (++titleTaps < TAPS_FOR_OVERLAY) return;
+        titleTaps = 0;
+
+        boolean show = !metricsOverlay.isVisible();
+        metricsOverlay.setVisible(show);
+        metricsOverlay.setManaged(show);
+        if (show) {
+            refreshMetrics();
+            metricsRefresh.setCycleCount(Animation.INDEFINITE);
+            metricsRefresh.play();
+        } else {
+            metricsRefresh.stop();
+        }
+    }
+
+    private void refreshMetrics() {
+        metricsLabel.setText(ApiMetrics.snapshot().format()
+                + "\n\n" + SceneManager.getInstance().formatMetrics()
+                + "\n" + ImageResolver.getInstance().formatMetrics());
     }
 
     // ========================
@@ -71,4 +202,4 @@ public class StatsController {
     @FXML public void goToMainDishes() throws IOException { SceneManager.getInstance().switchScene("plats"); }
     @FXML public void goToDesserts() throws IOException { SceneManager.getInstance().switchScene("desserts"); }
     @FXML public void goToDrinks() throws IOException { SceneManager.getInstance().switchScene("boissons"); }
-}
\ No newline at end of file
+}
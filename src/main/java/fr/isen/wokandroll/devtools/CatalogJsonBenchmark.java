@@ -0,0 +1,111 @@
+package fr.isen.wokandroll.devtools;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import fr.isen.wokandroll.services.CatalogClient.PlatDto;
+import fr.isen.wokandroll.services.CatalogJson;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Compare le décodage d'une catégorie par réflexion (Gson + PlatDto[]) et en flux (CatalogJson),
+ * pour des réponses de 10 à 100 000 plats : temps moyen et octets alloués par décodage.
+ *
+ * Compilé seulement avec mvn -Pdevtools. Lancement :
+ * java -p ... --add-modules jdk.management -m fr.isen.wokandroll/fr.isen.wokandroll.devtools.CatalogJsonBenchmark
+ */
+public class CatalogJsonBenchmark {
+
+    private static final int[] SIZES = {10, 100, 1_000, 10_000, 100_000};
+    // Nombre de plats décodés par mesure : les petites réponses sont répétées plus souvent
+    private static final int DISHES_PER_RUN = 2_000_000;
+    private static final int MIN_ITERATIONS = 5;
+
+    private interface Decoder {
+        List<PlatDto> decode(String json) throws IOException;
+    }
+
+    // Gson sans TypeAdapter : l'ancien chemin, par réflexion et tableau intermédiaire
+    private static final Gson REFLECTIVE = new Gson();
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws IOException {
+        System.out.printf("%9s | %-10s | %12s | %14s | %10s%n", "plats", "décodeur", "ms/décodage", "octets alloués", "octets/plat");
+        System.out.println("-".repeat(68));
+
+        for (int size : SIZES) {
+            String json = payload(size);
+            int iterations = Math.max(MIN_ITERATIONS, DISHES_PER_RUN / size);
+
+            Decoder reflective = s -> Arrays.stream(REFLECTIVE.fromJson(s, PlatDto[].class))
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toUnmodifiableList());
+            Decoder streaming = s -> CatalogJson.readPlats(new StringReader(s));
+
+            // Les deux décodeurs doivent produire exactement le même catalogue
+            if (!reflective.decode(json).equals(streaming.decode(json))) {
+                throw new IllegalStateException("Résultats différents pour " + size + " plats");
+            }
+
+            measure(size, "réflexion", reflective, json, iterations);
+            measure(size, "flux", streaming, json, iterations);
+        }
+    }
+
+    private static void measure(int size, String label, Decoder decoder, String json, int iterations) throws IOException {
+        // Préchauffage (compilation JIT)
+        for (int i = 0; i < iterations; i++) decoder.decode(json);
+
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = THREADS.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        int checksum = 0;
+        for (int i = 0; i < iterations; i++) {
+            checksum += decoder.decode(json).size();
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = THREADS.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        if (checksum != size * iterations) throw new IllegalStateException("Décodage incomplet");
+
+        double msPerOp = elapsed / 1e6 / iterations;
+        long bytesPerOp = allocated / iterations;
+        System.out.printf(Locale.ROOT, "%9d | %-10s | %12.3f | %14d | %10d%n",
+                size, label, msPerOp, bytesPerOp, bytesPerOp / size);
+    }
+
+    /**
+     * Réponse de /categories/{id}/plats avec le même format que le backend.
+     */
+    private static String payload(int size) throws IOException {
+        StringWriter out = new StringWriter(size * 160);
+        try (JsonWriter writer = new JsonWriter(out)) {
+            writer.beginArray();
+            for (int i = 1; i <= size; i++) {
+                writer.beginObject();
+                writer.name("idPlat").value(i);
+                writer.name("nom").value("Plat n°" + i);
+                writer.name("description").value("Description du plat " + i);
+                writer.name("prix").value(4.5 + (i % 20) * 0.5);
+                writer.name("disponible").value(i % 7 != 0);
+                writer.name("categorie").beginObject()
+                        .name("idCategorie").value(2)
+                        .name("nom").value("Plat")
+                        .endObject();
+                writer.endObject();
+            }
+            writer.endArray();
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,302 @@
+package fr.isen.wokandroll.devtools;
+
+import fr.isen.wokandroll.models.Cart;
+import fr.isen.wokandroll.models.Option;
+import fr.isen.wokandroll.models.Product;
+import fr.isen.wokandroll.services.ApiMetrics;
+import fr.isen.wokandroll.services.CatalogClient;
+import fr.isen.wokandroll.services.CatalogClient.PlatDto;
+import fr.isen.wokandroll.services.OrderApiService;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.http.HttpTimeoutException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Générateur de charge : N bornes simulées contre un backend de substitution embarqué.
+ *
+ * Chaque borne enchaîne des sessions client avec le vrai code de la borne (CatalogClient, Cart,
+ * OrderApiService) : parcours d'une catégorie, fiche de quelques plats avec leurs options,
+ * puis envoi de la commande. Rapport par scénario : débit, percentiles de latence, erreurs par type,
+ * et octets alloués côté client pendant la mesure.
+ *
+ * Toutes les bornes simulées partagent le même client (une seule JVM) : un CatalogClient, un cache conditionnel
+ * et un regroupement des GET identiques. Les requêtes simultanées de plusieurs bornes sont donc fusionnées :
+ * la charge mesurée côté backend est inférieure à celle de N bornes réelles (voir "GET regroupés" dans le rapport).
+ *
+ * Threads virtuels si la JVM les fournit (Java 21+), sinon un thread par borne.
+ *
+ * Compilé seulement avec mvn -Pdevtools. Lancement :
+ * java -p ... --add-modules jdk.httpserver,jdk.management -m fr.isen.wokandroll/fr.isen.wokandroll.devtools.LoadGenerator
+ *      [bornes] [durée s] [platsParCategorie] [latenceMs] [gigueMs] [tauxErreur]
+ */
+public class LoadGenerator {
+
+    private static final int DEFAULT_BORNES = 50;
+    private static final int DEFAULT_DUREE_S = 30;
+    private static final int PLATS_PAR_SESSION_MAX = 3;
+    // Pause entre deux actions d'un client (lecture de l'écran), en ms
+    private static final int PAUSE_MIN_MS = 20;
+    private static final int PAUSE_MAX_MS = 80;
+    // Début de charge écarté des mesures (JIT, ouverture des connexions), au plus 5 s
+    private static final long WARMUP_MAX_MS = 5_000;
+
+    private static final String[] SCENARIOS = {"catégorie", "fiche plat", "commande"};
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws Exception {
+        int bornes = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_BORNES;
+        int dureeS = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_DUREE_S;
+        int platsParCategorie = (args.length > 2) ? Integer.parseInt(args[2]) : 5;
+
+        StandInServer server = new StandInServer(0, platsParCategorie);
+        if (args.length > 3) server.setLatence(Long.parseLong(args[3]), (args.length > 4) ? Long.parseLong(args[4]) : 0);
+        if (args.length > 5) server.setTauxErreur(Double.parseDouble(args[5]));
+        server.start();
+
+        // Avant le premier appel aux services : backend embarqué, fichiers locaux dans un dossier jetable
+        System.setProperty("wokandroll.backends", "http://localhost:" + server.getPort());
+        System.setProperty("wokandroll.data.dir", Files.createTempDirectory("wokandroll-charge").toString());
+
+        System.out.printf(Locale.ROOT, "%d bornes, %d s (+ préchauffage), %d plats, backend http://localhost:%d%n",
+                bornes, dureeS, server.getNombrePlats(), server.getPort());
+        System.out.println("Client unique partagé par les bornes (cache et GET regroupés) : "
+                + "charge backend inférieure à celle de " + bornes + " bornes indépendantes");
+
+        Map<String, Recorder> recorders = new LinkedHashMap<>();
+        for (String scenario : SCENARIOS) recorders.put(scenario, new Recorder());
+
+        ExecutorService executor = newExecutor(bornes);
+        long warmupMs = Math.min(WARMUP_MAX_MS, dureeS * 1_000L / 5);
+        long deadline = System.nanoTime() + (dureeS * 1_000L + warmupMs) * 1_000_000L;
+
+        List<Future<?>> kiosks = new ArrayList<>();
+        for (int i = 0; i < bornes; i++) {
+            kiosks.add(executor.submit(() -> runKiosk(deadline, recorders)));
+        }
+
+        Thread.sleep(warmupMs);
+        Map<Long, Long> allocatedBefore = allocatedBytesByThread();
+        long start = System.nanoTime();
+        for (Recorder recorder : recorders.values()) recorder.startAt(start);
+
+        for (Future<?> kiosk : kiosks) {
+            try {
+                kiosk.get();
+            } catch (ExecutionException e) {
+                System.err.println("Borne arrêtée : " + e.getCause());
+            }
+        }
+
+        double elapsedS = (System.nanoTime() - start) / 1e9;
+        long allocated = allocatedSince(allocatedBefore);
+        executor.shutdown();
+        server.stop();
+
+        report(recorders, elapsedS, allocated);
+        System.out.println();
+        System.out.println("Client partagé par les " + bornes + " bornes :");
+        System.out.println(ApiMetrics.snapshot().format());
+        System.out.printf(Locale.ROOT, "%nServeur : %d lignes reçues, %d erreurs injectées%n",
+                server.getLignesRecues(), server.getErreursInjectees());
+        System.exit(0);
+    }
+
+    // ========================
+    //      SESSIONS
+    // ========================
+
+    private static void runKiosk(long deadline, Map<String, Recorder> recorders) {
+        CatalogClient catalog = CatalogClient.getInstance();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        while (System.nanoTime() < deadline) {
+            Cart cart = Cart.newSession();
+
+            int idCategorie = CatalogClient.CATEGORY_IDS[random.nextInt(CatalogClient.CATEGORY_IDS.length)];
+            List<PlatDto> plats = timed(recorders.get("catégorie"), () -> catalog.fetchCategory(idCategorie).join());
+            if (plats == null || plats.isEmpty()) continue;
+            pause(random);
+
+            int choix = 1 + random.nextInt(PLATS_PAR_SESSION_MAX);
+            for (int i = 0; i < choix && System.nanoTime() < deadline; i++) {
+                PlatDto plat = plats.get(random.nextInt(plats.size()));
+                List<Option> options = timed(recorders.get("fiche plat"), () -> catalog.fetchOptions(plat.idPlat).join());
+                List<Option> selection = new ArrayList<>();
+                if (options != null && !options.isEmpty()) selection.add(options.get(random.nextInt(options.size())));
+                Product product = new Product(plat.idPlat, plat.nom, plat.description, plat.prix, "",
+                        plat.categorie != null ? plat.categorie.nom : "");
+                cart.addItem(product, 1 + random.nextInt(2), selection);
+                pause(random);
+            }
+
+            if (!cart.getItems().isEmpty()) {
+                timed(recorders.get("commande"), () -> OrderApiService.createCommandeWithLinesFromCart(cart));
+            }
+        }
+    }
+
+    private interface Action<T> {
+        T run() throws Exception;
+    }
+
+    /** Exécute et mesure une action ; null en cas d'erreur (comptée par type). */
+    private static <T> T timed(Recorder recorder, Action<T> action) {
+        long start = System.nanoTime();
+        try {
+            T result = action.run();
+            recorder.record(start, System.nanoTime() - start);
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            recorder.failure(start, System.nanoTime() - start, errorKind(e));
+            return null;
+        }
+    }
+
+    private static String errorKind(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        if (error.getCause() instanceof IOException && !(error instanceof IOException)) error = error.getCause();
+        if (error instanceof HttpTimeoutException) return "délai dépassé";
+        String message = error.getMessage();
+        if (message != null && message.startsWith("Erreur HTTP : ")) {
+            int end = message.indexOf(' ', "Erreur HTTP : ".length());
+            return "HTTP " + message.substring("Erreur HTTP : ".length(), end > 0 ? end : message.length());
+        }
+        return error.getClass().getSimpleName() + (message != null ? " (" + message + ")" : "");
+    }
+
+    private static void pause(ThreadLocalRandom random) {
+        try {
+            Thread.sleep(random.nextInt(PAUSE_MIN_MS, PAUSE_MAX_MS + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor() par réflexion (le projet compile en Java 17),
+     * sinon un thread classique par borne.
+     */
+    private static ExecutorService newExecutor(int bornes) {
+        try {
+            ExecutorService virtual = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            System.out.println("Threads virtuels");
+            return virtual;
+        } catch (ReflectiveOperationException e) {
+            System.out.println("Threads virtuels indisponibles (Java " + Runtime.version().feature() + "), " + bornes + " threads");
+            return Executors.newFixedThreadPool(bornes);
+        }
+    }
+
+    // ========================
+    //      MESURES
+    // ========================
+
+    /**
+     * Octets alloués par thread vivant. Les threads virtuels n'ont pas de compteur propre :
+     * leurs allocations sont comptées sur les threads porteurs.
+     */
+    private static Map<Long, Long> allocatedBytesByThread() {
+        long[] ids = THREADS.getAllThreadIds();
+        long[] bytes = THREADS.getThreadAllocatedBytes(ids);
+        Map<Long, Long> byThread = new HashMap<>();
+        for (int i = 0; i < ids.length; i++) {
+            if (bytes[i] >= 0) byThread.put(ids[i], bytes[i]);
+        }
+        return byThread;
+    }
+
+    // Approximation : les threads terminés avant la fin de la mesure ne sont pas comptés
+    private static long allocatedSince(Map<Long, Long> before) {
+        long total = 0;
+        for (Map.Entry<Long, Long> entry : allocatedBytesByThread().entrySet()) {
+            total += entry.getValue() - before.getOrDefault(entry.getKey(), 0L);
+        }
+        return total;
+    }
+
+    private static void report(Map<String, Recorder> recorders, double elapsedS, long allocated) {
+        System.out.println();
+        System.out.printf("%-11s | %8s | %7s | %8s | %8s | %8s | %8s | %s%n",
+                "scénario", "appels", "/s", "p50 ms", "p95 ms", "p99 ms", "max ms", "erreurs");
+        System.out.println("-".repeat(90));
+        long operations = 0;
+        for (Map.Entry<String, Recorder> entry : recorders.entrySet()) {
+            Recorder r = entry.getValue();
+            long[] sorted = r.sortedLatencies();
+            operations += sorted.length;
+            System.out.printf(Locale.ROOT, "%-11s | %8d | %7.1f | %8.1f | %8.1f | %8.1f | %8.1f | %s%n",
+                    entry.getKey(), sorted.length, sorted.length / elapsedS,
+                    percentileMs(sorted, 0.50), percentileMs(sorted, 0.95), percentileMs(sorted, 0.99),
+                    sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6,
+                    r.errors.isEmpty() ? "-" : r.errors.toString());
+        }
+        System.out.printf(Locale.ROOT, "%nAllocations client : %.1f Mo/s, %d octets par appel%n",
+                allocated / elapsedS / (1 << 20), operations == 0 ? 0 : allocated / operations);
+    }
+
+    private static double percentileMs(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.min(sorted.length - 1, Math.max(0, Math.ceil(p * sorted.length) - 1));
+        return sorted[index] / 1e6;
+    }
+
+    /**
+     * Latences (ns, succès et échecs) et erreurs par type d'un scénario.
+     * Les appels commencés pendant le préchauffage sont ignorés.
+     */
+    private static final class Recorder {
+        private long[] latencies = new long[1024];
+        private int size = 0;
+        private final Map<String, Integer> errors = new LinkedHashMap<>();
+        private volatile long startNanos = Long.MAX_VALUE;
+
+        void startAt(long nanos) {
+            startNanos = nanos;
+        }
+
+        void record(long startedAt, long elapsedNanos) {
+            if (startedAt < startNanos) return;
+            synchronized (this) {
+                if (size == latencies.length) latencies = Arrays.copyOf(latencies, size * 2);
+                latencies[size++] = elapsedNanos;
+            }
+        }
+
+        void failure(long startedAt, long elapsedNanos, String kind) {
+            if (startedAt < startNanos) return;
+            record(startedAt, elapsedNanos);
+            synchronized (this) {
+                errors.merge(kind, 1, Integer::sum);
+            }
+        }
+
+        synchronized long[] sortedLatencies() {
+            long[] copy = Arrays.copyOf(latencies, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+}
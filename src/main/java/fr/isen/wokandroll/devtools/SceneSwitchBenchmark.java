@@ -0,0 +1,86 @@
+package fr.isen.wokandroll.devtools;
+
+import fr.isen.wokandroll.managers.SceneManager;
+import fr.isen.wokandroll.services.CatalogClient;
+import javafx.application.Platform;
+import javafx.scene.Parent;
+import javafx.stage.Stage;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Temps d'un changement d'écran, CSS et mise en page comprises, sur un parcours de client type
+ * (accueil, catégories, panier) : écrans rechargés depuis le FXML à chaque navigation (cache vidé),
+ * puis gardés en mémoire par SceneManager.
+ *
+ * Compilé seulement avec mvn -Pdevtools.
+ * Lancement (affichage requis ; backend de substitution conseillé pour des grilles remplies) :
+ * java -p ... -m fr.isen.wokandroll/fr.isen.wokandroll.devtools.SceneSwitchBenchmark [tours]
+ */
+public class SceneSwitchBenchmark {
+
+    private static final String[] ROUTE = {"accueil", "plats", "cart", "accueil", "entree", "desserts", "boissons", "cart"};
+    private static final int DEFAULT_ROUNDS = 20;
+
+    public static void main(String[] args) throws InterruptedException {
+        int rounds = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_ROUNDS;
+        CatalogClient.getInstance().loadSnapshot();
+
+        CountDownLatch done = new CountDownLatch(1);
+        Platform.startup(() -> {
+            try {
+                run(rounds);
+            } finally {
+                done.countDown();
+            }
+        });
+        done.await();
+        Platform.exit();
+    }
+
+    private static void run(int rounds) {
+        Stage stage = new Stage();
+        SceneManager scenes = SceneManager.getInstance();
+        scenes.initialize(stage);
+        scenes.loadInitialScene("home");
+
+        System.out.printf("%-14s | %9s | %9s | %9s | %9s%n", "écrans", "moy. ms", "p50 ms", "p95 ms", "max ms");
+        System.out.println("-".repeat(62));
+
+        // Un tour de préchauffage (chargement des classes, compilation JIT) avant chaque mesure
+        measure("rechargés", scenes, stage, 1, true, false);
+        measure("rechargés", scenes, stage, rounds, true, true);
+        measure("en mémoire", scenes, stage, 1, false, false);
+        measure("en mémoire", scenes, stage, rounds, false, true);
+
+        System.out.println();
+        System.out.println(scenes.formatMetrics());
+    }
+
+    private static void measure(String label, SceneManager scenes, Stage stage, int rounds, boolean reload, boolean print) {
+        long[] samples = new long[rounds * ROUTE.length];
+        int n = 0;
+        for (int round = 0; round < rounds; round++) {
+            for (String view : ROUTE) {
+                if (reload) scenes.clearCache();
+                long start = System.nanoTime();
+                scenes.switchScene(view);
+                // Faits sinon à la prochaine impulsion d'affichage : comptés dans le changement d'écran
+                Parent root = stage.getScene().getRoot();
+                root.applyCss();
+                root.layout();
+                samples[n++] = System.nanoTime() - start;
+            }
+        }
+        if (!print) return;
+
+        Arrays.sort(samples);
+        double mean = Arrays.stream(samples).average().orElse(0) / 1e6;
+        System.out.printf(Locale.ROOT, "%-14s | %9.2f | %9.2f | %9.2f | %9.2f%n", label, mean,
+                samples[samples.length / 2] / 1e6,
+                samples[(int) (samples.length * 0.95)] / 1e6,
+                samples[samples.length - 1] / 1e6);
+    }
+}
@@ -0,0 +1,316 @@
+package fr.isen.wokandroll.devtools;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Menu servi par le backend de substitution (mêmes noms que les images embarquées).
+ * Chaque réponse JSON est pré-calculée avec son ETag ; toute modification change la version.
+ *
+ * Chaque modification d'un plat est aussi gardée dans un petit journal (versions successives),
+ * diffusé en direct par /catalogue/evenements et résumé par /catalogue/changements?depuis=N.
+ *
+ * Au-delà des 5 plats nommés par catégorie, des plats synthétiques ("Pork spring rolls #6", ...)
+ * complètent le menu jusqu'à la taille demandée, pour mesurer le client sur de gros catalogues.
+ */
+class StandInCatalog {
+
+    static final String[] CATEGORIES = {"Entrée", "Plat", "Boisson", "Dessert"};
+    static final int PLATS_NOMMES = 5;
+    // Changements gardés pour les clients qui se reconnectent ; au-delà, ils rechargent tout
+    private static final int JOURNAL_MAX = 256;
+
+    private static final String[][] NOMS = {
+            {"Pork spring rolls", "Vegetable spring rolls", "Miso soup", "Chicken gyoza", "Wakame salad"},
+            {"Chicken pad thai", "Beef lok lak", "Red curry chicken", "Cantonese rice", "Vegetable noodles"},
+            {"Homemade iced tea", "Coca-Cola", "Mineral water", "Asian beer", "Lychee juice"},
+            {"Coconut pearls", "Ice cream mochi", "Fried banana", "Lychees in syrup", "Fresh pineapple"}
+    };
+
+    /** Une ressource JSON figée avec ses validateurs. */
+    static final class Resource {
+        final String json;
+        final String etag;
+        final String lastModified;
+
+        Resource(String json, long version, ZonedDateTime modifiedAt) {
+            this.json = json;
+            this.etag = "\"v" + version + "-" + Integer.toHexString(json.hashCode()) + "\"";
+            this.lastModified = DateTimeFormatter.RFC_1123_DATE_TIME.format(modifiedAt);
+        }
+    }
+
+    /**
+     * Changement d'un plat : la version du catalogue qu'il a produite et les champs modifiés
+     * ({"idPlat":3,"prix":6.5}), ou {"idPlat":3,"ajout":true} / {"idPlat":3,"supprime":true}.
+     */
+    static final class Change {
+        final long version;
+        final JsonObject delta;
+
+        Change(long version, JsonObject delta) {
+            this.version = version;
+            this.delta = delta;
+        }
+    }
+
+    private final Map<Integer, JsonObject> plats = new LinkedHashMap<>();
+    private final Deque<Change> journal = new ArrayDeque<>();
+    private final Map<Integer, Resource> categoryResources = new LinkedHashMap<>();
+    // Calculées à la demande : 5 options par plat, trop lourd à pré-calculer pour un gros menu
+    private final Map<Integer, Resource> optionResources = new HashMap<>();
+    private long version = 1;
+    private int nextId;
+    private ZonedDateTime modifiedAt;
+
+    StandInCatalog() {
+        this(PLATS_NOMMES);
+    }
+
+    /**
+     * @param platsParCategorie nombre de plats par catégorie (au moins 1)
+     */
+    StandInCatalog(int platsParCategorie) {
+        if (platsParCategorie < 1) throw new IllegalArgumentException("platsParCategorie < 1 : " + platsParCategorie);
+        int id = 1;
+        for (int c = 0; c < CATEGORIES.length; c++) {
+            for (int i = 0; i < platsParCategorie; i++) {
+                int n = i % PLATS_NOMMES;
+                String nom = (i < PLATS_NOMMES) ? NOMS[c][i] : NOMS[c][n] + " #" + (i + 1);
+                JsonObject plat = new JsonObject();
+                plat.addProperty("idPlat", id);
+                plat.addProperty("nom", nom);
+                plat.addProperty("description", "");
+                plat.addProperty("prix", 4.5 + c * 2 + n * 0.5);
+                plat.addProperty("disponible", true);
+                JsonObject categorie = new JsonObject();
+                categorie.addProperty("idCategorie", c + 1);
+                categorie.addProperty("nom", CATEGORIES[c]);
+                plat.add("categorie", categorie);
+                plats.put(id++, plat);
+            }
+        }
+        nextId = id;
+        rebuild();
+    }
+
+    synchronized Resource category(int idCategorie) {
+        return categoryResources.get(idCategorie);
+    }
+
+    synchronized Resource options(int idPlat) {
+        JsonObject plat = plats.get(idPlat);
+        if (plat == null) return null;
+        return optionResources.computeIfAbsent(idPlat,
+                id -> new Resource(optionsArray(plat).toString(), version, modifiedAt));
+    }
+
+    // Options uniquement pour les entrées et les plats
+    private static JsonArray optionsArray(JsonObject plat) {
+        int cat = plat.getAsJsonObject("categorie").get("idCategorie").getAsInt();
+        return (cat <= 2) ? optionsFor(plat.get("idPlat").getAsInt()) : new JsonArray();
+    }
+
+    /** Copie du plat, ou null s'il n'existe pas. */
+    synchronized JsonObject plat(int idPlat) {
+        JsonObject plat = plats.get(idPlat);
+        return (plat != null) ? plat.deepCopy() : null;
+    }
+
+    synchronized int size() {
+        return plats.size();
+    }
+
+    /**
+     * Change la disponibilité d'un plat : nouvelle version, donc nouveaux ETag.
+     */
+    synchronized void setDisponible(int idPlat, boolean disponible) {
+        JsonObject plat = plats.get(idPlat);
+        if (plat == null) return;
+        plat.addProperty("disponible", disponible);
+        publish(delta(idPlat, "disponible", plat.get("disponible").getAsJsonPrimitive()));
+    }
+
+    synchronized void setPrix(int idPlat, double prix) {
+        JsonObject plat = plats.get(idPlat);
+        if (plat == null) return;
+        plat.addProperty("prix", prix);
+        publish(delta(idPlat, "prix", plat.get("prix").getAsJsonPrimitive()));
+    }
+
+    /**
+     * Ajoute un plat en fin de catégorie.
+     *
+     * @return l'id du nouveau plat
+     */
+    synchronized int ajouterPlat(int idCategorie, String nom, double prix) {
+        if (idCategorie < 1 || idCategorie > CATEGORIES.length) {
+            throw new IllegalArgumentException("Catégorie inconnue : " + idCategorie);
+        }
+        int id = nextId++;
+        JsonObject plat = new JsonObject();
+        plat.addProperty("idPlat", id);
+        plat.addProperty("nom", nom);
+        plat.addProperty("description", "");
+        plat.addProperty("prix", prix);
+        plat.addProperty("disponible", true);
+        JsonObject categorie = new JsonObject();
+        categorie.addProperty("idCategorie", idCategorie);
+        categorie.addProperty("nom", CATEGORIES[idCategorie - 1]);
+        plat.add("categorie", categorie);
+        plats.put(id, plat);
+        publish(delta(id, "ajout", new JsonPrimitive(true)));
+        return id;
+    }
+
+    /** Retire un plat du menu ; false s'il n'existait pas. */
+    synchronized boolean retirerPlat(int idPlat) {
+        if (plats.remove(idPlat) == null) return false;
+        publish(delta(idPlat, "supprime", new JsonPrimitive(true)));
+        return true;
+    }
+
+    synchronized long version() {
+        return version;
+    }
+
+    /**
+     * Changements postérieurs à la version donnée ; attend jusqu'à timeoutMs s'il n'y en a pas encore
+     * (liste vide à l'expiration). Null si le journal ne remonte plus jusque-là : le client doit tout recharger.
+     */
+    synchronized List<Change> awaitChanges(long since, long timeoutMs) throws InterruptedException {
+        if (since > version || (!journal.isEmpty() && since < journal.peekFirst().version - 1)) return null;
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        long remaining = timeoutMs;
+        while (version <= since && remaining > 0) {
+            wait(remaining);
+            remaining = deadline - System.currentTimeMillis();
+        }
+        if (!journal.isEmpty() && since < journal.peekFirst().version - 1) return null;
+        List<Change> changes = new ArrayList<>();
+        for (Change change : journal) {
+            if (change.version > since) changes.add(change);
+        }
+        return changes;
+    }
+
+    /**
+     * Plats modifiés, ajoutés ou retirés depuis la version donnée, dans leur état actuel :
+     * {"version":V,"plats":[...],"supprimes":[ids],"options":[{"idPlat":..,"options":[...]}]}
+     * (options des plats ajoutés seulement, les autres n'en changent pas).
+     *
+     * {"version":V,"rechargementComplet":true} si le client doit tout recharger : version inconnue,
+     * journal trop court, ou plus de la moitié du menu touchée (le delta ne serait pas plus léger).
+     */
+    synchronized JsonObject changesSince(long since) {
+        JsonObject result = new JsonObject();
+        result.addProperty("version", version);
+        boolean covered = since >= 0 && since <= version
+                && (since == version || (!journal.isEmpty() && since >= journal.peekFirst().version - 1));
+        if (!covered) {
+            result.addProperty("rechargementComplet", true);
+            return result;
+        }
+
+        Set<Integer> touched = new LinkedHashSet<>();
+        Set<Integer> added = new LinkedHashSet<>();
+        for (Change change : journal) {
+            if (change.version <= since) continue;
+            int idPlat = change.delta.get("idPlat").getAsInt();
+            touched.add(idPlat);
+            if (change.delta.has("ajout")) added.add(idPlat);
+        }
+        if (touched.size() > Math.max(1, plats.size() / 2)) {
+            result.addProperty("rechargementComplet", true);
+            return result;
+        }
+
+        JsonArray changed = new JsonArray();
+        JsonArray removed = new JsonArray();
+        JsonArray options = new JsonArray();
+        for (int idPlat : touched) {
+            JsonObject plat = plats.get(idPlat);
+            if (plat == null) {
+                removed.add(idPlat);
+                continue;
+            }
+            changed.add(plat);
+            if (added.contains(idPlat)) {
+                JsonObject entry = new JsonObject();
+                entry.addProperty("idPlat", idPlat);
+                entry.add("options", optionsArray(plat));
+                options.add(entry);
+            }
+        }
+        result.add("plats", changed);
+        result.add("supprimes", removed);
+        result.add("options", options);
+        return result;
+    }
+
+    private static JsonObject delta(int idPlat, String field, JsonPrimitive value) {
+        JsonObject delta = new JsonObject();
+        delta.addProperty("idPlat", idPlat);
+        delta.add(field, value);
+        return delta;
+    }
+
+    private void publish(JsonObject delta) {
+        version++;
+        rebuild();
+
+        journal.addLast(new Change(version, delta));
+        if (journal.size() > JOURNAL_MAX) journal.removeFirst();
+        notifyAll();
+    }
+
+    private void rebuild() {
+        modifiedAt = ZonedDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.SECONDS);
+        categoryResources.clear();
+        optionResources.clear();
+
+        Map<Integer, JsonArray> byCategory = new LinkedHashMap<>();
+        for (JsonObject plat : plats.values()) {
+            int cat = plat.getAsJsonObject("categorie").get("idCategorie").getAsInt();
+            byCategory.computeIfAbsent(cat, k -> new JsonArray()).add(plat);
+        }
+        for (int c = 1; c <= CATEGORIES.length; c++) {
+            JsonArray list = byCategory.getOrDefault(c, new JsonArray());
+            categoryResources.put(c, new Resource(list.toString(), version, modifiedAt));
+        }
+    }
+
+    private static JsonArray optionsFor(int idPlat) {
+        JsonArray options = new JsonArray();
+        options.add(option(idPlat * 10 + 1, "Mild", "SPICE_LEVEL", 0));
+        options.add(option(idPlat * 10 + 2, "Medium", "SPICE_LEVEL", 0));
+        options.add(option(idPlat * 10 + 3, "Hot", "SPICE_LEVEL", 0));
+        options.add(option(idPlat * 10 + 4, "Steamed rice", "SIDE", 1.5));
+        options.add(option(idPlat * 10 + 5, "Extra sauce", "EXTRA", 0.5));
+        return options;
+    }
+
+    private static JsonObject option(int id, String libelle, String type, double prix) {
+        JsonObject o = new JsonObject();
+        o.addProperty("idOption", id);
+        o.addProperty("libelle", libelle);
+        o.addProperty("type", type);
+        o.addProperty("prix", prix);
+        return o;
+    }
+}
@@ -0,0 +1,556 @@
+package fr.isen.wokandroll.devtools;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Backend de substitution en mémoire, pour développer sans le vrai serveur et mesurer le client.
+ * Sert tous les endpoints utilisés par la borne, statistiques comprises (calculées sur les commandes reçues),
+ * diffuse les changements du menu en Server-Sent Events sur /catalogue/evenements
+ * et les résume depuis une version donnée sur /catalogue/changements?depuis=N.
+ *
+ * Pour les mesures : taille du menu réglable, et latence / gigue / taux d'erreurs (503) injectables
+ * à chaud, appliqués à chaque requête.
+ *
+ * Compilé seulement avec mvn -Pdevtools. Lancement :
+ * java -p ... --add-modules jdk.httpserver -m fr.isen.wokandroll/fr.isen.wokandroll.devtools.StandInServer
+ *      [port] [platsParCategorie] [latenceMs] [gigueMs] [tauxErreur]
+ * Puis, sur l'entrée standard : "dispo <idPlat> true|false", "prix <idPlat> <prix>",
+ * "ajout <idCategorie> <prix> <nom>" ou "retrait <idPlat>".
+ */
+public class StandInServer {
+
+    public static final int DEFAULT_PORT = 7001;
+    private static final int DEFAULT_TOP_LIMIT = 5;
+    // Commentaire SSE envoyé à un client sans nouvelles, pour qu'il sache la connexion vivante
+    private static final long KEEPALIVE_MS = 15_000;
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private final StandInCatalog catalog;
+    private final AtomicInteger notModified = new AtomicInteger();
+
+    // Défaillances injectées
+    private volatile long latenceMs = 0;
+    private volatile long gigueMs = 0;
+    private volatile double tauxErreur = 0;
+    private final AtomicInteger erreursInjectees = new AtomicInteger();
+
+    private final AtomicInteger nextCommandeId = new AtomicInteger(1);
+    private final Map<Integer, JsonObject> commandes = new ConcurrentHashMap<>();
+    private final AtomicInteger lignesRecues = new AtomicInteger();
+    // Réponses déjà envoyées, par clé d'idempotence (un renvoi reçoit la même réponse)
+    private final Map<String, JsonObject> idempotentResponses = new ConcurrentHashMap<>();
+    // Quantités vendues par plat, pour /stats/top-plats
+    private final Map<Integer, LongAdder> ventes = new ConcurrentHashMap<>();
+
+    public StandInServer(int port) throws IOException {
+        this(port, StandInCatalog.PLATS_NOMMES);
+    }
+
+    /**
+     * @param platsParCategorie taille du menu : 5 plats nommés, puis des plats synthétiques
+     */
+    public StandInServer(int port, int platsParCategorie) throws IOException {
+        catalog = new StandInCatalog(platsParCategorie);
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.setExecutor(executor);
+        server.createContext("/categories", withFaults(this::handleCategories));
+        server.createContext("/plats", withFaults(this::handlePlats));
+        server.createContext("/commandes", withFaults(this::handleCommandes));
+        server.createContext("/lignes", withFaults(this::handleLignes));
+        server.createContext("/stats", withFaults(this::handleStats));
+        server.createContext("/catalogue/evenements", withFaults(this::handleEvenements));
+        server.createContext("/catalogue/changements", withFaults(this::handleChangements));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public int getLignesRecues() {
+        return lignesRecues.get();
+    }
+
+    /** Nombre de réponses 304 envoyées (GET conditionnels satisfaits). */
+    public int getNotModifiedCount() {
+        return notModified.get();
+    }
+
+    public void setDisponible(int idPlat, boolean disponible) {
+        catalog.setDisponible(idPlat, disponible);
+    }
+
+    public void setPrix(int idPlat, double prix) {
+        catalog.setPrix(idPlat, prix);
+    }
+
+    /** @return l'id du plat ajouté */
+    public int ajouterPlat(int idCategorie, String nom, double prix) {
+        return catalog.ajouterPlat(idCategorie, nom, prix);
+    }
+
+    public boolean retirerPlat(int idPlat) {
+        return catalog.retirerPlat(idPlat);
+    }
+
+    public int getNombrePlats() {
+        return catalog.size();
+    }
+
+    // ========================
+    //      DÉFAILLANCES
+    // ========================
+
+    /**
+     * Chaque requête attend latenceMs ± gigueMs (tirage uniforme) avant d'être traitée.
+     */
+    public void setLatence(long latenceMs, long gigueMs) {
+        if (latenceMs < 0 || gigueMs < 0) throw new IllegalArgumentException("latence et gigue doivent être positives");
+        this.latenceMs = latenceMs;
+        this.gigueMs = gigueMs;
+    }
+
+    /**
+     * Proportion (0..1) des requêtes qui reçoivent un 503, après la latence injectée.
+     */
+    public void setTauxErreur(double tauxErreur) {
+        if (tauxErreur < 0 || tauxErreur > 1) throw new IllegalArgumentException("tauxErreur hors de [0, 1] : " + tauxErreur);
+        this.tauxErreur = tauxErreur;
+    }
+
+    /** Nombre de 503 renvoyés par injection. */
+    public int getErreursInjectees() {
+        return erreursInjectees.get();
+    }
+
+    private HttpHandler withFaults(HttpHandler handler) {
+        return exchange -> {
+            try {
+                long delay = latenceMs;
+                long jitter = gigueMs;
+                if (jitter > 0) delay += ThreadLocalRandom.current().nextLong(-jitter, jitter + 1);
+                if (delay > 0) Thread.sleep(delay);
+
+                if (tauxErreur > 0 && ThreadLocalRandom.current().nextDouble() < tauxErreur) {
+                    erreursInjectees.incrementAndGet();
+                    exchange.getRequestBody().readAllBytes();
+                    send(exchange, 503, null);
+                    return;
+                }
+                handler.handle(exchange);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                exchange.close();
+            }
+        };
+    }
+
+    // ========================
+    //      HANDLERS
+    // ========================
+
+    // GET /categories/{id}/plats
+    private void handleCategories(HttpExchange exchange) throws IOException {
+        String[] parts = exchange.getRequestURI().getPath().split("/");
+        Integer id = (parts.length == 4 && parts[3].equals("plats")) ? parseId(parts[2]) : null;
+        sendResource(exchange, id != null ? catalog.category(id) : null);
+    }
+
+    // GET /plats/{id}/options
+    private void handlePlats(HttpExchange exchange) throws IOException {
+        String[] parts = exchange.getRequestURI().getPath().split("/");
+        Integer id = (parts.length == 4 && parts[3].equals("options")) ? parseId(parts[2]) : null;
+        sendResource(exchange, id != null ? catalog.options(id) : null);
+    }
+
+    // GET /catalogue/changements?depuis=N
+    private void handleChangements(HttpExchange exchange) throws IOException {
+        if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+            send(exchange, 405, null);
+            return;
+        }
+        long since = -1;
+        String query = exchange.getRequestURI().getQuery();
+        if (query != null) {
+            for (String param : query.split("&")) {
+                if (param.startsWith("depuis=")) {
+                    try {
+                        since = Long.parseLong(param.substring("depuis=".length()));
+                    } catch (NumberFormatException ignored) {}
+                }
+            }
+        }
+        send(exchange, 200, catalog.changesSince(since));
+    }
+
+    /**
+     * GET /catalogue/evenements (text/event-stream) : un événement par changement, avec la version
+     * du catalogue comme id : "plat" (disponibilité ou prix, appliqué tel quel par la borne) ou
+     * "catalogue" (plat ajouté ou retiré). Un client qui se reconnecte avec Last-Event-ID reçoit
+     * les changements manqués, ou "reset" s'ils ne sont plus dans le journal.
+     */
+    private void handleEvenements(HttpExchange exchange) throws IOException {
+        if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+            send(exchange, 405, null);
+            return;
+        }
+        long since = -1;
+        String lastEventId = exchange.getRequestHeaders().getFirst("Last-Event-ID");
+        if (lastEventId != null) {
+            try {
+                since = Long.parseLong(lastEventId.trim());
+            } catch (NumberFormatException ignored) {}
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream os = exchange.getResponseBody()) {
+            if (since < 0) {
+                // Premier abonnement : seulement la version courante, le client vient de charger le catalogue
+                since = catalog.version();
+                writeEvent(os, ": connecté\nid: " + since + "\n\n");
+            }
+            while (true) {
+                List<StandInCatalog.Change> changes = catalog.awaitChanges(since, KEEPALIVE_MS);
+                if (changes == null) {
+                    since = catalog.version();
+                    writeEvent(os, "id: " + since + "\nevent: reset\ndata: {}\n\n");
+                } else if (changes.isEmpty()) {
+                    writeEvent(os, ": ping\n\n");
+                } else {
+                    StringBuilder sb = new StringBuilder();
+                    for (StandInCatalog.Change change : changes) {
+                        boolean structure = change.delta.has("ajout") || change.delta.has("supprime");
+                        sb.append("id: ").append(change.version)
+                                .append("\nevent: ").append(structure ? "catalogue" : "plat")
+                                .append("\ndata: ").append(change.delta).append("\n\n");
+                        since = change.version;
+                    }
+                    writeEvent(os, sb.toString());
+                }
+            }
+        } catch (InterruptedException e) {
+            // Arrêt du serveur
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // Client déconnecté
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void writeEvent(OutputStream os, String event) throws IOException {
+        os.write(event.getBytes(StandardCharsets.UTF_8));
+        os.flush();
+    }
+
+    private void handleCommandes(HttpExchange exchange) throws IOException {
+        if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+            send(exchange, 405, null);
+            return;
+        }
+
+        String path = exchange.getRequestURI().getPath();
+        JsonObject body = readBody(exchange);
+        String key = exchange.getRequestHeaders().getFirst("Idempotency-Key");
+
+        if (!path.equals("/commandes") && !path.equals("/commandes/batch")) {
+            send(exchange, 404, null);
+            return;
+        }
+
+        if (key == null) {
+            send(exchange, 201, acceptCommande(path, body));
+            return;
+        }
+        // Réservation de la clé et création en une seule opération :
+        // deux renvois simultanés ne créent qu'une commande
+        boolean[] created = {false};
+        JsonObject commande = idempotentResponses.computeIfAbsent(key, k -> {
+            created[0] = true;
+            return acceptCommande(path, body);
+        });
+        send(exchange, created[0] ? 201 : 200, commande);
+    }
+
+    private JsonObject acceptCommande(String path, JsonObject body) {
+        JsonObject commande = createCommande(body);
+        if (path.equals("/commandes/batch")) {
+            // En-tête + lignes dans une seule requête
+            JsonElement lignes = body.get("lignes");
+            if (lignes != null && lignes.isJsonArray()) {
+                lignesRecues.addAndGet(lignes.getAsJsonArray().size());
+                for (JsonElement ligne : lignes.getAsJsonArray()) {
+                    if (ligne.isJsonObject()) recordVente(ligne.getAsJsonObject());
+                }
+            }
+        }
+        return commande;
+    }
+
+    private void handleLignes(HttpExchange exchange) throws IOException {
+        if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+            send(exchange, 405, null);
+            return;
+        }
+        JsonObject body = readBody(exchange);
+        JsonElement commande = body.get("commande");
+        if (commande == null || !commandes.containsKey(commande.getAsJsonObject().get("idCommande").getAsInt())) {
+            send(exchange, 400, null);
+            return;
+        }
+        String key = exchange.getRequestHeaders().getFirst("Idempotency-Key");
+        if (key == null || idempotentResponses.putIfAbsent(key, new JsonObject()) == null) {
+            lignesRecues.incrementAndGet();
+            recordVente(body);
+        }
+        send(exchange, 201, new JsonObject());
+    }
+
+    // GET /stats/commandes/count, /stats/panier-moyen, /stats/top-plats?limit=N
+    private void handleStats(HttpExchange exchange) throws IOException {
+        if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+            send(exchange, 405, null);
+            return;
+        }
+        switch (exchange.getRequestURI().getPath()) {
+            case "/stats/commandes/count" -> {
+                JsonObject json = new JsonObject();
+                json.addProperty("nombre_commandes", commandes.size());
+                send(exchange, 200, json);
+            }
+            case "/stats/panier-moyen" -> {
+                double total = 0;
+                int n = 0;
+                for (JsonObject commande : commandes.values()) {
+                    JsonElement montant = commande.get("montantTotal");
+                    if (montant != null && !montant.isJsonNull()) {
+                        total += montant.getAsDouble();
+                        n++;
+                    }
+                }
+                JsonObject json = new JsonObject();
+                json.addProperty("panier_moyen", (n == 0) ? 0 : total / n);
+                send(exchange, 200, json);
+            }
+            case "/stats/top-plats" -> send(exchange, 200, topPlats(parseLimit(exchange.getRequestURI().getQuery())));
+            default -> send(exchange, 404, null);
+        }
+    }
+
+    private JsonArray topPlats(int limit) {
+        List<Map.Entry<Integer, Long>> sorted = new ArrayList<>();
+        ventes.forEach((id, quantite) -> sorted.add(Map.entry(id, quantite.sum())));
+        sorted.sort(Map.Entry.<Integer, Long>comparingByValue().reversed());
+
+        JsonArray top = new JsonArray();
+        for (Map.Entry<Integer, Long> entry : sorted) {
+            if (top.size() >= limit) break;
+            JsonObject plat = catalog.plat(entry.getKey());
+            if (plat == null) continue;
+            plat.addProperty("quantiteVendue", entry.getValue());
+            top.add(plat);
+        }
+        return top;
+    }
+
+    private void recordVente(JsonObject ligne) {
+        JsonElement plat = ligne.get("plat");
+        JsonElement quantite = ligne.get("quantite");
+        if (plat == null || !plat.isJsonObject() || !plat.getAsJsonObject().has("idPlat")) return;
+        int idPlat = plat.getAsJsonObject().get("idPlat").getAsInt();
+        int q = (quantite != null && !quantite.isJsonNull()) ? quantite.getAsInt() : 1;
+        ventes.computeIfAbsent(idPlat, k -> new LongAdder()).add(q);
+    }
+
+    private JsonObject createCommande(JsonObject body) {
+        int id = nextCommandeId.getAndIncrement();
+        JsonObject commande = new JsonObject();
+        commande.addProperty("idCommande", id);
+        commande.add("montantTotal", body.get("montantTotal"));
+        commande.add("lignes", body.has("lignes") ? body.get("lignes") : new JsonArray());
+        commandes.put(id, commande);
+
+        JsonObject response = new JsonObject();
+        response.addProperty("idCommande", id);
+        return response;
+    }
+
+    // ========================
+    //      OUTILS
+    // ========================
+
+    /**
+     * Réponse GET avec ETag / Last-Modified ; 304 si le client a déjà cette version.
+     */
+    private void sendResource(HttpExchange exchange, StandInCatalog.Resource resource) throws IOException {
+        if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+            send(exchange, 405, null);
+            return;
+        }
+        if (resource == null) {
+            send(exchange, 404, null);
+            return;
+        }
+
+        exchange.getResponseHeaders().set("ETag", resource.etag);
+        exchange.getResponseHeaders().set("Last-Modified", resource.lastModified);
+
+        if (isNotModified(exchange, resource)) {
+            notModified.incrementAndGet();
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+
+        byte[] bytes = resource.json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+        exchange.close();
+    }
+
+    private static boolean isNotModified(HttpExchange exchange, StandInCatalog.Resource resource) {
+        // If-None-Match est prioritaire sur If-Modified-Since (RFC 9110)
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (ifNoneMatch != null) {
+            for (String tag : ifNoneMatch.split(",")) {
+                String t = tag.trim();
+                if (t.equals("*") || t.equals(resource.etag)) return true;
+            }
+            return false;
+        }
+        String ifModifiedSince = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+        if (ifModifiedSince != null) {
+            try {
+                ZonedDateTime since = ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME);
+                ZonedDateTime modified = ZonedDateTime.parse(resource.lastModified, DateTimeFormatter.RFC_1123_DATE_TIME);
+                return !modified.isAfter(since);
+            } catch (DateTimeParseException ignored) {}
+        }
+        return false;
+    }
+
+    private static Integer parseId(String s) {
+        try {
+            return Integer.parseInt(s);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static int parseLimit(String query) {
+        if (query != null) {
+            for (String param : query.split("&")) {
+                if (param.startsWith("limit=")) {
+                    Integer limit = parseId(param.substring("limit=".length()));
+                    if (limit != null && limit > 0) return limit;
+                }
+            }
+        }
+        return DEFAULT_TOP_LIMIT;
+    }
+
+    private static JsonObject readBody(HttpExchange exchange) throws IOException {
+        try (InputStreamReader reader = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+            JsonElement element = JsonParser.parseReader(reader);
+            return element.isJsonObject() ? element.getAsJsonObject() : new JsonObject();
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, JsonElement body) throws IOException {
+        byte[] bytes = (body != null) ? body.toString().getBytes(StandardCharsets.UTF_8) : new byte[0];
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length > 0 ? bytes.length : -1);
+        if (bytes.length > 0) {
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(bytes);
+            }
+        }
+        exchange.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int platsParCategorie = (args.length > 1) ? Integer.parseInt(args[1]) : StandInCatalog.PLATS_NOMMES;
+        StandInServer server = new StandInServer(port, platsParCategorie);
+        if (args.length > 2) server.setLatence(Long.parseLong(args[2]), (args.length > 3) ? Long.parseLong(args[3]) : 0);
+        if (args.length > 4) server.setTauxErreur(Double.parseDouble(args[4]));
+        server.start();
+        System.out.println("Backend de substitution démarré sur http://localhost:" + server.getPort()
+                + " (" + server.getNombrePlats() + " plats, latence " + server.latenceMs + " ± " + server.gigueMs
+                + " ms, erreurs " + (int) Math.round(server.tauxErreur * 100) + " %)");
+        server.readCommands(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Modifie le menu à chaud depuis la console, pour voir les bornes se mettre à jour.
+     */
+    private void readCommands(BufferedReader in) throws IOException {
+        String line;
+        while ((line = in.readLine()) != null) {
+            String[] parts = line.trim().split("\\s+");
+            try {
+                if (parts.length == 3 && parts[0].equals("dispo")) {
+                    setDisponible(Integer.parseInt(parts[1]), Boolean.parseBoolean(parts[2]));
+                    System.out.println("Catalogue en version " + catalog.version());
+                } else if (parts.length == 3 && parts[0].equals("prix")) {
+                    setPrix(Integer.parseInt(parts[1]), Double.parseDouble(parts[2]));
+                    System.out.println("Catalogue en version " + catalog.version());
+                } else if (parts.length >= 4 && parts[0].equals("ajout")) {
+                    String nom = String.join(" ", List.of(parts).subList(3, parts.length));
+                    int id = ajouterPlat(Integer.parseInt(parts[1]), nom, Double.parseDouble(parts[2]));
+                    System.out.println("Plat " + id + " ajouté, catalogue en version " + catalog.version());
+                } else if (parts.length == 2 && parts[0].equals("retrait")) {
+                    if (!retirerPlat(Integer.parseInt(parts[1]))) System.out.println("Plat inconnu : " + parts[1]);
+                    System.out.println("Catalogue en version " + catalog.version());
+                } else if (!line.isBlank()) {
+                    System.out.println("Commandes : dispo <idPlat> true|false, prix <idPlat> <prix>,"
+                            + " ajout <idCategorie> <prix> <nom>, retrait <idPlat>");
+                }
+            } catch (NumberFormatException e) {
+                System.out.println("Nombre invalide : " + e.getMessage());
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage());
+            }
+        }
+    }
+}
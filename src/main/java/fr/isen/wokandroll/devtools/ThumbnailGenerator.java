@@ -0,0 +1,360 @@
+package fr.isen.wokandroll.devtools;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Pré-calcul des vignettes au build (phase process-classes, voir pom.xml), pour que la borne
+ * ne décode plus les PNG d'origine (1024 x 1536, ~2 Mo chacun).
+ *
+ * Pour chaque image du dossier source et chaque variante demandée :
+ *   carre:N   carré de N x N pixels, centre de l'image (cartes du menu, panier)
+ *   cadre:LxH image entière tenant dans L x H pixels (fenêtre du produit)
+ * écrites sous le dossier de sortie, avec un manifest.properties que lit ImageCache :
+ *   /fr/isen/wokandroll/images/plats/Beefloklak.png|carre:100=/fr/isen/wokandroll/thumbnails/plats/Beefloklak-carre-100.jpg
+ * Photos sans transparence en JPEG (qualité 0.9, ~5 fois plus léger qu'en PNG), les autres en PNG.
+ *
+ * Les variantes listées en 5e argument (en pixels) sont aussi pré-décodées dans pixels.pack
+ * (voir PixelPack) : ARGB prémultiplié, projeté en mémoire par la borne, sans décodage.
+ *
+ * Arguments : dossierImages dossierSortie variantes facteursEchelle [variantesPack]
+ *   ex. src/main/resources/fr/isen/wokandroll/images target/classes/fr/isen/wokandroll/thumbnails
+ *       carre:60,carre:100,cadre:350x300 1,2 carre:60,carre:100
+ * Une vignette plus récente que son image n'est pas régénérée, ni le pack plus récent que ses vignettes.
+ */
+public class ThumbnailGenerator {
+
+    private static final String IMAGES_RESOURCE = "/fr/isen/wokandroll/images/";
+    private static final String THUMBNAILS_RESOURCE = "/fr/isen/wokandroll/thumbnails/";
+    static final String MANIFEST = "manifest.properties";
+    // Mêmes valeurs que PixelPack (module de l'application, non lu ici)
+    private static final String PACK = "pixels.pack";
+    private static final int PACK_MAGIC = 0x57525058;
+    private static final int PACK_FORMAT_VERSION = 1;
+    // Début des pixels de chaque entrée aligné (lecture des int sans chevauchement de ligne de cache)
+    private static final int PACK_ALIGN = 64;
+    private static final float JPEG_QUALITY = 0.9f;
+
+    /** Variante en pixels : carré (width == height) ou cadre. */
+    private static final class Variant {
+        final boolean square;
+        final int width;
+        final int height;
+
+        Variant(boolean square, int width, int height) {
+            this.square = square;
+            this.width = width;
+            this.height = height;
+        }
+
+        // Même écriture que les clés d'ImageCache
+        String key() {
+            return square ? "carre:" + width : "cadre:" + width + "x" + height;
+        }
+
+        String suffix() {
+            return square ? "carre-" + width : "cadre-" + width + "x" + height;
+        }
+
+        static Variant parse(String s, double scale) {
+            String[] parts = s.trim().split(":");
+            if (parts.length == 2 && parts[0].equals("carre")) {
+                int n = (int) Math.ceil(Integer.parseInt(parts[1]) * scale);
+                return new Variant(true, n, n);
+            }
+            if (parts.length == 2 && parts[0].equals("cadre")) {
+                String[] dims = parts[1].split("x");
+                return new Variant(false, (int) Math.ceil(Integer.parseInt(dims[0]) * scale),
+                        (int) Math.ceil(Integer.parseInt(dims[1]) * scale));
+            }
+            throw new IllegalArgumentException("Variante inconnue : " + s + " (carre:N ou cadre:LxH)");
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            // Lancé dans la JVM de Maven (exec:java) : pas de System.exit
+            throw new IllegalArgumentException("Usage : ThumbnailGenerator dossierImages dossierSortie variantes [facteursEchelle]");
+        }
+        Path source = Paths.get(args[0]);
+        Path target = Paths.get(args[1]);
+        String[] scales = (args.length > 3) ? args[3].split(",") : new String[]{"1"};
+
+        List<Variant> variants = new ArrayList<>();
+        for (String scale : scales) {
+            for (String v : args[2].split(",")) {
+                Variant variant = Variant.parse(v, Double.parseDouble(scale.trim()));
+                if (variants.stream().noneMatch(o -> o.key().equals(variant.key()))) variants.add(variant);
+            }
+        }
+
+        System.setProperty("java.awt.headless", "true");
+        long start = System.nanoTime();
+        Properties manifest = new Properties();
+        long originalBytes = 0;
+        long thumbnailBytes = 0;
+        int generated = 0;
+        int upToDate = 0;
+
+        List<Path> images;
+        try (Stream<Path> files = Files.walk(source)) {
+            images = files.filter(ThumbnailGenerator::isImage).sorted().toList();
+        }
+        for (Path image : images) {
+            String relative = source.relativize(image).toString().replace('\\', '/');
+            String baseName = relative.substring(0, relative.lastIndexOf('.'));
+            originalBytes += Files.size(image);
+
+            BufferedImage decoded = null;
+            for (Variant variant : variants) {
+                // Le format dépend de la transparence : une des deux extensions existe si la vignette est à jour
+                String stem = baseName + "-" + variant.suffix();
+                Path out = existing(target, stem);
+                if (out == null || Files.getLastModifiedTime(out).compareTo(Files.getLastModifiedTime(image)) < 0) {
+                    if (decoded == null) decoded = read(image);
+                    if (decoded == null) break;
+                    boolean opaque = !decoded.getColorModel().hasAlpha();
+                    if (out != null) Files.delete(out);
+                    out = target.resolve(stem + (opaque ? ".jpg" : ".png"));
+                    Files.createDirectories(out.getParent());
+                    write(render(decoded, variant, opaque), out, opaque);
+                    generated++;
+                } else {
+                    upToDate++;
+                }
+                thumbnailBytes += Files.size(out);
+                manifest.setProperty(IMAGES_RESOURCE + relative + "|" + variant.key(),
+                        THUMBNAILS_RESOURCE + target.relativize(out).toString().replace('\\', '/'));
+            }
+        }
+
+        Files.createDirectories(target);
+        try (OutputStream os = Files.newOutputStream(target.resolve(MANIFEST))) {
+            manifest.store(os, "Vignettes pré-calculées (ThumbnailGenerator)");
+        }
+
+        System.out.printf(Locale.ROOT, "Vignettes : %d images x %d variantes, %d générées, %d à jour (%d ms)%n",
+                images.size(), variants.size(), generated, upToDate, (System.nanoTime() - start) / 1_000_000);
+        System.out.printf(Locale.ROOT, "Images d'origine %.1f Mo, vignettes %.1f Mo : %.1f Mo de moins à lire et décoder%n",
+                originalBytes / 1e6, thumbnailBytes / 1e6, (originalBytes - thumbnailBytes) / 1e6);
+
+        if (args.length > 4 && !args[4].isBlank()) {
+            writePack(target, manifest, Set.of(args[4].replace(" ", "").split(",")));
+        }
+    }
+
+    // ========================
+    //      PACK DE PIXELS
+    // ========================
+
+    private static void writePack(Path target, Properties manifest, Set<String> packVariants) throws IOException {
+        long start = System.nanoTime();
+        Map<String, Path> entries = new TreeMap<>();
+        for (String key : manifest.stringPropertyNames()) {
+            if (packVariants.contains(key.substring(key.lastIndexOf('|') + 1))) {
+                entries.put(key, target.resolve(manifest.getProperty(key).substring(THUMBNAILS_RESOURCE.length())));
+            }
+        }
+        Path pack = target.resolve(PACK);
+        if (packUpToDate(pack, entries)) {
+            System.out.printf(Locale.ROOT, "Pack de pixels à jour (%d entrées, %.1f Mo)%n", entries.size(), Files.size(pack) / 1e6);
+            return;
+        }
+
+        List<BufferedImage> thumbs = new ArrayList<>();
+        long headerSize = 4 + 4 + 8 + 4;
+        for (Map.Entry<String, Path> e : entries.entrySet()) {
+            thumbs.add(ImageIO.read(e.getValue().toFile()));
+            headerSize += 2 + e.getKey().getBytes(StandardCharsets.UTF_8).length + 4 + 4 + 8;
+        }
+
+        List<Long> offsets = new ArrayList<>();
+        long offset = align(headerSize);
+        for (BufferedImage img : thumbs) {
+            offsets.add(offset);
+            offset = align(offset + (long) img.getWidth() * img.getHeight() * 4);
+        }
+
+        Path tmp = target.resolve(PACK + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+            DataOutputStream header = new DataOutputStream(headerBytes);
+            header.writeInt(PACK_MAGIC);
+            header.writeInt(PACK_FORMAT_VERSION);
+            header.writeLong(System.currentTimeMillis());
+            header.writeInt(entries.size());
+            int i = 0;
+            for (String key : entries.keySet()) {
+                BufferedImage img = thumbs.get(i);
+                header.writeUTF(key);
+                header.writeInt(img.getWidth());
+                header.writeInt(img.getHeight());
+                header.writeLong(offsets.get(i++));
+            }
+            channel.write(ByteBuffer.wrap(headerBytes.toByteArray()), 0);
+
+            for (i = 0; i < thumbs.size(); i++) {
+                BufferedImage img = thumbs.get(i);
+                int[] argb = img.getRGB(0, 0, img.getWidth(), img.getHeight(), null, 0, img.getWidth());
+                ByteBuffer pixels = ByteBuffer.allocate(argb.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+                for (int p : argb) pixels.putInt(premultiply(p));
+                pixels.flip();
+                channel.write(pixels, offsets.get(i));
+            }
+        }
+        Files.move(tmp, pack, StandardCopyOption.REPLACE_EXISTING);
+        System.out.printf(Locale.ROOT, "Pack de pixels : %d entrées, %.1f Mo (%d ms)%n",
+                entries.size(), Files.size(pack) / 1e6, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // Même liste d'entrées et plus récent que toutes ses vignettes
+    private static boolean packUpToDate(Path pack, Map<String, Path> entries) throws IOException {
+        if (!Files.exists(pack)) return false;
+        FileTime packTime = Files.getLastModifiedTime(pack);
+        for (Path thumb : entries.values()) {
+            if (Files.getLastModifiedTime(thumb).compareTo(packTime) > 0) return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(pack)))) {
+            if (in.readInt() != PACK_MAGIC || in.readInt() != PACK_FORMAT_VERSION) return false;
+            in.readLong();
+            int count = in.readInt();
+            if (count != entries.size()) return false;
+            for (int i = 0; i < count; i++) {
+                if (!entries.containsKey(in.readUTF())) return false;
+                in.readInt();
+                in.readInt();
+                in.readLong();
+            }
+        }
+        return true;
+    }
+
+    private static long align(long offset) {
+        return (offset + PACK_ALIGN - 1) / PACK_ALIGN * PACK_ALIGN;
+    }
+
+    private static int premultiply(int argb) {
+        int a = argb >>> 24;
+        if (a == 0xFF) return argb;
+        if (a == 0) return 0;
+        int r = ((argb >> 16) & 0xFF) * a / 255;
+        int g = ((argb >> 8) & 0xFF) * a / 255;
+        int b = (argb & 0xFF) * a / 255;
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    private static boolean isImage(Path p) {
+        String name = p.getFileName().toString().toLowerCase(Locale.ROOT);
+        return Files.isRegularFile(p) && (name.endsWith(".png") || name.endsWith(".jpg") || name.endsWith(".jpeg"));
+    }
+
+    private static BufferedImage read(Path image) {
+        try {
+            BufferedImage img = ImageIO.read(image.toFile());
+            if (img == null) System.err.println("Format non lu, ignoré : " + image);
+            return img;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Image illisible : " + image, e);
+        }
+    }
+
+    private static Path existing(Path target, String stem) {
+        for (String ext : new String[]{".jpg", ".png"}) {
+            Path p = target.resolve(stem + ext);
+            if (Files.exists(p)) return p;
+        }
+        return null;
+    }
+
+    private static void write(BufferedImage img, Path out, boolean jpeg) throws IOException {
+        if (!jpeg) {
+            try (OutputStream os = Files.newOutputStream(out)) {
+                ImageIO.write(img, "png", os);
+            }
+            return;
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.setOutput(ios);
+            writer.write(null, new IIOImage(img, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private static BufferedImage render(BufferedImage src, Variant variant, boolean opaque) {
+        int w = src.getWidth();
+        int h = src.getHeight();
+        int type = opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+        if (variant.square) {
+            // Centre de l'image, puis réduction
+            int side = Math.min(w, h);
+            BufferedImage cropped = src.getSubimage((w - side) / 2, (h - side) / 2, side, side);
+            return scale(cropped, variant.width, variant.height, type);
+        }
+        double ratio = Math.min((double) variant.width / w, (double) variant.height / h);
+        if (ratio >= 1) return scale(src, w, h, type);
+        return scale(src, Math.max(1, (int) Math.round(w * ratio)), Math.max(1, (int) Math.round(h * ratio)), type);
+    }
+
+    /**
+     * Réduction par moitiés successives puis bicubique : une seule passe bilinéaire
+     * de 1024 à 100 pixels crénelle les contours.
+     */
+    private static BufferedImage scale(BufferedImage src, int width, int height, int type) {
+        BufferedImage current = src;
+        int w = src.getWidth();
+        int h = src.getHeight();
+        do {
+            w = Math.max(width, w / 2);
+            h = Math.max(height, h / 2);
+            if (w < width * 2 && h < height * 2) {
+                w = width;
+                h = height;
+            }
+            BufferedImage next = new BufferedImage(w, h, type);
+            Graphics2D g = next.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(current, 0, 0, w, h, null);
+            g.dispose();
+            current = next;
+        } while (w != width || h != height);
+        return current;
+    }
+}
@@ -0,0 +1,449 @@
+package fr.isen.wokandroll.managers;
+
+import javafx.application.Platform;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javafx.scene.Scene;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import javafx.stage.Screen;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Images des produits, partagées par tous les écrans.
+ *
+ * Chaque variante (chemin, taille) est décodée une seule fois, directement à la taille affichée
+ * (les PNG d'origine font 1024 x 1536, ~2 Mo chacun) : un retour sur un écran ne décode plus rien.
+ * Les variantes les moins récemment utilisées sont libérées au-delà du budget mémoire,
+ * réglable avec -Dwokandroll.images.cache.mb (48 Mo par défaut).
+ *
+ * Vignettes pré-calculées au build (thumbnails/manifest.properties, voir ThumbnailGenerator) :
+ * utilisées en priorité, la plus petite qui couvre la taille demandée. L'image d'origine
+ * n'est lue que sans vignette (lancement hors Maven, image ajoutée depuis le build).
+ * Les variantes du pack de pixels (PixelPack) ne sont même pas décodées, ni comptées dans le budget :
+ * leurs pixels restent dans le fichier projeté en mémoire.
+ *
+ * Dans les grilles, loadSquare / loadFitted ne bloquent pas le thread JavaFX : la carte s'affiche
+ * tout de suite avec un fond neutre, l'image est décodée par un petit pool en arrière-plan
+ * (dans l'ordre des demandes : haut de la grille d'abord) puis mise en place.
+ */
+public class ImageCache {
+
+    private static ImageCache instance;
+
+    private static final long DEFAULT_BUDGET_MB = 48;
+    private static final String MANIFEST_RESOURCE = "/fr/isen/wokandroll/thumbnails/manifest.properties";
+    private static volatile double outputScale = 0;
+    // Les vignettes se décodent en quelques ms : peu de threads suffisent sans concurrencer l'interface
+    private static final int DECODER_THREADS = Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() - 1));
+    // Clé des propriétés d'une ImageView : image attendue (une demande plus ancienne ne l'écrase pas)
+    private static final String PENDING = ImageCache.class.getName() + ".pending";
+
+    private final long budgetBytes;
+    // Ordre d'accès : la première entrée est la moins récemment utilisée
+    private final LinkedHashMap<String, Image> images = new LinkedHashMap<>(64, 0.75f, true);
+    // Ressources absentes ou illisibles : pas de nouvel essai à chaque carte
+    private final Set<String> missing = new HashSet<>();
+    // Vignettes par image d'origine
+    private final Map<String, List<Thumbnail>> thumbnails;
+    // Null sans pack
+    private final PixelPack pack;
+    private long sizeBytes = 0;
+    private long hits = 0;
+    private long decodes = 0;
+    private final ExecutorService decoder = Executors.newFixedThreadPool(DECODER_THREADS, r -> {
+        Thread t = new Thread(r, "image-decoder");
+        t.setDaemon(true);
+        return t;
+    });
+    private Image placeholder;
+
+    ImageCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+        this.thumbnails = loadManifest();
+        this.pack = PixelPack.open();
+    }
+
+    public static synchronized ImageCache getInstance() {
+        if (instance == null) {
+            long mb = DEFAULT_BUDGET_MB;
+            try {
+                mb = Long.parseLong(System.getProperty("wokandroll.images.cache.mb", String.valueOf(DEFAULT_BUDGET_MB)).trim());
+            } catch (NumberFormatException e) {
+                System.err.println("wokandroll.images.cache.mb invalide, " + DEFAULT_BUDGET_MB + " Mo utilisés");
+            }
+            instance = new ImageCache(mb * 1024 * 1024);
+        }
+        return instance;
+    }
+
+    // ========================
+    //      VARIANTES
+    // ========================
+
+    /**
+     * Image carrée (centre de l'original) de size x size points, ou null si la ressource est introuvable.
+     */
+    public Image square(String resourcePath, double size) {
+        int px = toPixels(size);
+        return get(resourcePath, true, px, px);
+    }
+
+    /**
+     * Image entière, proportions gardées, tenant dans width x height points ; null si introuvable.
+     */
+    public Image fitted(String resourcePath, double width, double height) {
+        return get(resourcePath, false, toPixels(width), toPixels(height));
+    }
+
+    // ========================
+    //   CHARGEMENT EN FOND
+    // ========================
+
+    /**
+     * Met dans la vue l'image carrée (ou fallback si elle est introuvable) : immédiatement si elle est
+     * en cache, sinon après décodage en arrière-plan. Thread JavaFX.
+     */
+    public void loadSquare(ImageView view, String resourcePath, double size, String fallback) {
+        int px = toPixels(size);
+        loadInto(view, resourcePath, fallback, true, px, px);
+    }
+
+    /** Idem avec l'image entière tenant dans width x height. */
+    public void loadFitted(ImageView view, String resourcePath, double width, double height, String fallback) {
+        loadInto(view, resourcePath, fallback, false, toPixels(width), toPixels(height));
+    }
+
+    private void loadInto(ImageView view, String resourcePath, String fallback, boolean square, int width, int height) {
+        String wanted = (resourcePath != null && !resourcePath.isBlank()) ? resourcePath : fallback;
+        view.getProperties().put(PENDING, wanted);
+
+        Image cached = peek(wanted, square, width, height);
+        if (cached == null && fallback != null && isMissing(wanted)) cached = peek(fallback, square, width, height);
+        if (cached != null) {
+            view.setImage(cached);
+            return;
+        }
+        view.setImage(placeholder());
+
+        // Carte retirée de l'écran avant son tour (changement de catégorie) : pas de décodage
+        AtomicBoolean detached = new AtomicBoolean(false);
+        ChangeListener<Scene> onDetach = (obs, oldScene, newScene) -> {
+            if (oldScene != null && newScene == null) detached.set(true);
+        };
+        view.sceneProperty().addListener(onDetach);
+
+        CompletableFuture.supplyAsync(() -> {
+            if (detached.get()) return null;
+            Image image = get(wanted, square, width, height);
+            if (image == null && fallback != null && !fallback.equals(wanted)) image = get(fallback, square, width, height);
+            return image;
+        }, decoder).whenComplete((image, error) -> Platform.runLater(() -> {
+            view.sceneProperty().removeListener(onDetach);
+            if (error != null) System.err.println("Décodage de " + wanted + " impossible : " + error.getMessage());
+            if (!wanted.equals(view.getProperties().get(PENDING))) return;
+            if (image != null) {
+                view.setImage(image);
+                view.getProperties().remove(PENDING);
+            } else if (detached.get()) {
+                // Écran gardé en mémoire (SceneManager) : décodage fait quand la carte revient à l'écran
+                retryWhenAttached(view, wanted, fallback, square, width, height);
+            }
+        }));
+    }
+
+    private void retryWhenAttached(ImageView view, String wanted, String fallback, boolean square, int width, int height) {
+        if (view.getScene() != null) {
+            loadInto(view, wanted, fallback, square, width, height);
+            return;
+        }
+        view.sceneProperty().addListener(new ChangeListener<>() {
+            @Override
+            public void changed(ObservableValue<? extends Scene> obs, Scene oldScene, Scene newScene) {
+                if (newScene == null) return;
+                view.sceneProperty().removeListener(this);
+                if (wanted.equals(view.getProperties().get(PENDING))) {
+                    loadInto(view, wanted, fallback, square, width, height);
+                }
+            }
+        });
+    }
+
+    // Fond neutre partagé (1 pixel, agrandi par l'ImageView)
+    private synchronized Image placeholder() {
+        if (placeholder == null) {
+            WritableImage img = new WritableImage(1, 1);
+            img.getPixelWriter().setColor(0, 0, Color.rgb(0, 0, 0, 0.06));
+            placeholder = img;
+        }
+        return placeholder;
+    }
+
+    private synchronized boolean isMissing(String resourcePath) {
+        return missing.contains(resourcePath);
+    }
+
+    private synchronized Image peek(String resourcePath, boolean square, int width, int height) {
+        if (resourcePath == null) return null;
+        String key = resourcePath + "|" + variantKey(square, width, height);
+        Image cached = images.get(key);
+        if (cached == null && pack != null) cached = pack.get(key);
+        if (cached != null) hits++;
+        return cached;
+    }
+
+    public synchronized long getHitCount() { return hits; }
+    public synchronized long getDecodeCount() { return decodes; }
+    public synchronized long getSizeBytes() { return sizeBytes; }
+
+    /** Images d'origine qui ont des vignettes (vide sans manifest). */
+    Set<String> knownImages() {
+        return thumbnails.keySet();
+    }
+
+    /** Libère toutes les variantes (les suivantes seront redécodées). */
+    public synchronized void clear() {
+        images.clear();
+        missing.clear();
+        sizeBytes = 0;
+    }
+
+    // ========================
+    //      CACHE
+    // ========================
+
+    private interface Decoder {
+        Image decode(byte[] bytes) throws IOException;
+    }
+
+    private Image get(String resourcePath, boolean square, int width, int height) {
+        if (resourcePath == null || resourcePath.isBlank()) return null;
+        String key = resourcePath + "|" + variantKey(square, width, height);
+        synchronized (this) {
+            Image cached = images.get(key);
+            if (cached == null && pack != null) cached = pack.get(key);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            if (missing.contains(resourcePath)) return null;
+        }
+
+        // Décodage hors verrou : deux écrans qui demandent la même variante décodent au pire deux fois
+        Image image = null;
+        Thumbnail thumbnail = thumbnail(resourcePath, square, width, height);
+        if (thumbnail != null) {
+            // Déjà recadrée ; réduite au décodage si c'est une taille au-dessus
+            boolean larger = thumbnail.width > width || thumbnail.height > height;
+            image = load(thumbnail.path, bytes -> larger ? decode(bytes, width, height, true) : decode(bytes, 0, 0, false));
+        }
+        if (image == null) image = load(resourcePath, square ? squareDecoder(width) : bytes -> decode(bytes, width, height, true));
+
+        synchronized (this) {
+            decodes++;
+            if (image == null) {
+                missing.add(resourcePath);
+                return null;
+            }
+            Image previous = images.put(key, image);
+            if (previous != null) sizeBytes -= bytesOf(previous);
+            sizeBytes += bytesOf(image);
+            evict(key);
+            return image;
+        }
+    }
+
+    private static Image load(String resourcePath, Decoder decoder) {
+        try (InputStream is = ImageCache.class.getResourceAsStream(resourcePath)) {
+            if (is == null) return null;
+            Image image = decoder.decode(is.readAllBytes());
+            return image.isError() ? null : image;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Image illisible (" + resourcePath + ") : " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Moins récemment utilisées d'abord, sans jamais retirer celle qui vient d'être ajoutée
+    private void evict(String keep) {
+        Iterator<Map.Entry<String, Image>> it = images.entrySet().iterator();
+        while (sizeBytes > budgetBytes && it.hasNext()) {
+            Map.Entry<String, Image> eldest = it.next();
+            if (eldest.getKey().equals(keep)) continue;
+            sizeBytes -= bytesOf(eldest.getValue());
+            it.remove();
+        }
+    }
+
+    private static long bytesOf(Image image) {
+        // Pixels décodés en ARGB 32 bits
+        return (long) image.getWidth() * (long) image.getHeight() * 4;
+    }
+
+    // ========================
+    //      VIGNETTES
+    // ========================
+
+    /** Vignette pré-calculée : variante (en pixels) et ressource. */
+    private static final class Thumbnail {
+        final boolean square;
+        final int width;
+        final int height;
+        final String path;
+
+        Thumbnail(boolean square, int width, int height, String path) {
+            this.square = square;
+            this.width = width;
+            this.height = height;
+            this.path = path;
+        }
+    }
+
+    // Même écriture que les clés du manifest
+    private static String variantKey(boolean square, int width, int height) {
+        return square ? "carre:" + width : "cadre:" + width + "x" + height;
+    }
+
+    // La plus petite qui couvre la taille demandée, sinon la plus grande
+    private Thumbnail thumbnail(String resourcePath, boolean square, int width, int height) {
+        Thumbnail best = null;
+        for (Thumbnail t : thumbnails.getOrDefault(resourcePath, List.of())) {
+            if (t.square != square) continue;
+            boolean covers = t.width >= width && t.height >= height;
+            boolean bestCovers = best != null && best.width >= width && best.height >= height;
+            if (best == null
+                    || (covers && (!bestCovers || t.width < best.width))
+                    || (!covers && !bestCovers && t.width > best.width)) {
+                best = t;
+            }
+        }
+        return best;
+    }
+
+    private static Map<String, List<Thumbnail>> loadManifest() {
+        Properties manifest = new Properties();
+        try (InputStream in = ImageCache.class.getResourceAsStream(MANIFEST_RESOURCE)) {
+            if (in == null) return Map.of();
+            manifest.load(in);
+        } catch (IOException e) {
+            System.err.println("Manifest des vignettes illisible : " + e.getMessage());
+            return Map.of();
+        }
+
+        Map<String, List<Thumbnail>> byImage = new HashMap<>();
+        for (String key : manifest.stringPropertyNames()) {
+            // /chemin/image.png|carre:100 ou |cadre:350x300
+            int bar = key.lastIndexOf('|');
+            if (bar < 0) continue;
+            String variant = key.substring(bar + 1);
+            try {
+                Thumbnail t;
+                if (variant.startsWith("carre:")) {
+                    int n = Integer.parseInt(variant.substring("carre:".length()));
+                    t = new Thumbnail(true, n, n, manifest.getProperty(key));
+                } else if (variant.startsWith("cadre:")) {
+                    String[] dims = variant.substring("cadre:".length()).split("x");
+                    t = new Thumbnail(false, Integer.parseInt(dims[0]), Integer.parseInt(dims[1]), manifest.getProperty(key));
+                } else {
+                    continue;
+                }
+                byImage.computeIfAbsent(key.substring(0, bar), k -> new ArrayList<>()).add(t);
+            } catch (RuntimeException e) {
+                System.err.println("Vignette ignorée (" + key + ") : " + e.getMessage());
+            }
+        }
+        return byImage;
+    }
+
+    // ========================
+    //      DÉCODAGE
+    // ========================
+
+    private static int toPixels(double size) {
+        return Math.max(1, (int) Math.ceil(size * outputScale()));
+    }
+
+    // Écrans HiDPI : assez de pixels pour rester net. L'écran ne se lit que sur le thread JavaFX ;
+    // ailleurs, avant la première lecture, 1 pixel par point
+    private static double outputScale() {
+        if (outputScale == 0 && Platform.isFxApplicationThread()) {
+            outputScale = Math.max(1.0, Screen.getPrimary().getOutputScaleX());
+        }
+        return (outputScale == 0) ? 1.0 : outputScale;
+    }
+
+    private static Decoder squareDecoder(int px) {
+        return bytes -> {
+            int[] dims = readDimensions(bytes);
+            if (dims == null) {
+                // Format non reconnu : décodage dans un cadre assez grand pour recadrer
+                Image img = decode(bytes, 2 * px, 2 * px, true);
+                return cropCenter(img, Math.min(px, (int) Math.min(img.getWidth(), img.getHeight())));
+            }
+            // Le petit côté décodé à px pixels, l'autre en proportion
+            double scale = (double) px / Math.min(dims[0], dims[1]);
+            Image img = decode(bytes, Math.ceil(dims[0] * scale), Math.ceil(dims[1] * scale), false);
+            return cropCenter(img, px);
+        };
+    }
+
+    private static Image decode(byte[] bytes, double width, double height, boolean preserveRatio) {
+        // Chargement synchrone : les dimensions sont connues au retour
+        return new Image(new ByteArrayInputStream(bytes), width, height, preserveRatio, true);
+    }
+
+    private static Image cropCenter(Image img, int side) {
+        if (img.isError()) return img;
+        int x = (int) ((img.getWidth() - side) / 2);
+        int y = (int) ((img.getHeight() - side) / 2);
+        return new WritableImage(img.getPixelReader(), x, y, side, side);
+    }
+
+    /**
+     * Largeur et hauteur lues dans l'en-tête PNG (IHDR) ou JPEG (segment SOF), sans décoder ;
+     * null pour un autre format.
+     */
+    static int[] readDimensions(byte[] b) {
+        if (b.length >= 24 && (b[0] & 0xFF) == 0x89 && b[1] == 'P' && b[2] == 'N' && b[3] == 'G') {
+            return new int[]{readInt(b, 16), readInt(b, 20)};
+        }
+        if (b.length >= 4 && (b[0] & 0xFF) == 0xFF && (b[1] & 0xFF) == 0xD8) {
+            int i = 2;
+            while (i + 9 < b.length && (b[i] & 0xFF) == 0xFF) {
+                int marker = b[i + 1] & 0xFF;
+                int length = ((b[i + 2] & 0xFF) << 8) | (b[i + 3] & 0xFF);
+                // SOF0..SOF15, sauf DHT (C4), JPG (C8) et DAC (CC)
+                if (marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC) {
+                    int height = ((b[i + 5] & 0xFF) << 8) | (b[i + 6] & 0xFF);
+                    int width = ((b[i + 7] & 0xFF) << 8) | (b[i + 8] & 0xFF);
+                    return new int[]{width, height};
+                }
+                i += 2 + length;
+            }
+        }
+        return null;
+    }
+
+    private static int readInt(byte[] b, int offset) {
+        return ((b[offset] & 0xFF) << 24) | ((b[offset + 1] & 0xFF) << 16)
+                | ((b[offset + 2] & 0xFF) << 8) | (b[offset + 3] & 0xFF);
+    }
+}
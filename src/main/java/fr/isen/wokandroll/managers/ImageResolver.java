@@ -0,0 +1,152 @@
+package fr.isen.wokandroll.managers;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.Normalizer;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Nom d'un plat -> image de sa catégorie ("Coca-Cola" -> /fr/isen/wokandroll/images/boissons/CocaCola.png).
+ *
+ * Index construit une fois : nom de fichier normalisé (minuscules, sans accents, lettres seules)
+ * -> chemin, par dossier de catégorie. Les noms des plats sont normalisés de la même façon,
+ * donc "Coca-Cola", "Ice cream mochi" ou "Pork spring rolls #6" retrouvent leur image sans cas particulier.
+ * Chaque nom n'est normalisé qu'une fois : ensuite, une seule recherche dans une table.
+ *
+ * Source de l'index : les images connues du manifest des vignettes (les photos d'origine
+ * ne sont plus dans le jar), sinon le dossier des images quand l'application tourne hors Maven.
+ */
+public class ImageResolver {
+
+    private static ImageResolver instance;
+
+    private static final String IMAGES_RESOURCE = "/fr/isen/wokandroll/images/";
+    // Dossier d'images par id de catégorie
+    private static final String[] FOLDERS = {"entrees", "plats", "boissons", "desserts"};
+    // Valeur des noms sans image dans la table des résolutions (ConcurrentHashMap refuse null)
+    private static final String NONE = "";
+
+    // Dossier -> (nom normalisé -> chemin)
+    private final Map<String, Map<String, String>> index;
+    // Par catégorie : nom du plat -> chemin ou NONE
+    private final List<Map<String, String>> resolved = List.of(
+            new ConcurrentHashMap<>(), new ConcurrentHashMap<>(), new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+
+    private final long indexBuildNanos;
+    private final int indexProbes;
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder normalizeNanos = new LongAdder();
+
+    ImageResolver(Collection<String> knownImages) {
+        long start = System.nanoTime();
+        int probes = 0;
+        Collection<String> images = knownImages;
+        if (images.isEmpty()) {
+            images = scanImages();
+            probes = images.size();
+        }
+        Map<String, Map<String, String>> byFolder = new HashMap<>();
+        for (String path : images) {
+            if (!path.startsWith(IMAGES_RESOURCE)) continue;
+            String relative = path.substring(IMAGES_RESOURCE.length());
+            int slash = relative.indexOf('/');
+            if (slash < 0) continue;
+            String file = relative.substring(slash + 1);
+            int dot = file.lastIndexOf('.');
+            String key = normalize((dot > 0) ? file.substring(0, dot) : file);
+            if (!key.isEmpty()) {
+                byFolder.computeIfAbsent(relative.substring(0, slash), k -> new HashMap<>()).put(key, path);
+            }
+        }
+        this.index = byFolder;
+        this.indexProbes = probes;
+        this.indexBuildNanos = System.nanoTime() - start;
+    }
+
+    public static synchronized ImageResolver getInstance() {
+        if (instance == null) {
+            instance = new ImageResolver(ImageCache.getInstance().knownImages());
+        }
+        return instance;
+    }
+
+    // ========================
+    //      RÉSOLUTION
+    // ========================
+
+    /**
+     * Image du plat dans le dossier de sa catégorie (1 entrées, 2 plats, 3 boissons, 4 desserts),
+     * ou null s'il n'y en a pas.
+     */
+    public String resolve(int idCategorie, String nom) {
+        if (nom == null || idCategorie < 1 || idCategorie > FOLDERS.length) return null;
+        lookups.increment();
+        String path = resolved.get(idCategorie - 1).computeIfAbsent(nom, k -> {
+            long start = System.nanoTime();
+            String found = index.getOrDefault(FOLDERS[idCategorie - 1], Map.of()).get(normalize(nom));
+            normalizeNanos.add(System.nanoTime() - start);
+            if (found == null) misses.increment();
+            return (found != null) ? found : NONE;
+        });
+        return path.equals(NONE) ? null : path;
+    }
+
+    /**
+     * Coût de l'index (construction au démarrage) et des résolutions nom -> image, pour l'écran des statistiques.
+     */
+    public String formatMetrics() {
+        long n = lookups.sum();
+        int distinct = resolved.stream().mapToInt(Map::size).sum();
+        int size = index.values().stream().mapToInt(Map::size).sum();
+        return String.format(Locale.ROOT,
+                "Images : index %d fichiers en %.1f ms (%d fichiers parcourus), %d résolutions dont %d calculées"
+                        + " (%.1f µs en moyenne), %d sans image",
+                size, indexBuildNanos / 1e6, indexProbes, n, distinct,
+                (distinct == 0) ? 0.0 : normalizeNanos.sum() / 1e3 / distinct, misses.sum());
+    }
+
+    // Minuscules, sans accents, lettres seules : "Coca-Cola" -> "cocacola"
+    static String normalize(String s) {
+        String lower = s.toLowerCase(Locale.ROOT);
+        for (int i = 0; i < lower.length(); i++) {
+            if (lower.charAt(i) > 0x7F) {
+                lower = Normalizer.normalize(lower, Normalizer.Form.NFD);
+                break;
+            }
+        }
+        StringBuilder sb = new StringBuilder(lower.length());
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            if (c >= 'a' && c <= 'z') sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    // Sans manifest : lancement depuis les sources (IDE), les images sont dans un dossier
+    private static Collection<String> scanImages() {
+        URL url = ImageResolver.class.getResource(IMAGES_RESOURCE);
+        if (url == null || !"file".equals(url.getProtocol())) return List.of();
+        try {
+            Path root = Path.of(url.toURI());
+            try (Stream<Path> files = Files.walk(root)) {
+                return files.filter(Files::isRegularFile)
+                        .map(p -> IMAGES_RESOURCE + root.relativize(p).toString().replace('\\', '/'))
+                        .toList();
+            }
+        } catch (IOException | URISyntaxException e) {
+            System.err.println("Dossier des images illisible : " + e.getMessage());
+            return List.of();
+        }
+    }
+}
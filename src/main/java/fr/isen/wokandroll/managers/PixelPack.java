@@ -0,0 +1,162 @@
+package fr.isen.wokandroll.managers;
+
+import fr.isen.wokandroll.services.AppFiles;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Vignettes pré-décodées (pixels ARGB prémultipliés), regroupées dans un seul fichier par le build
+ * (ThumbnailGenerator) et projetées en mémoire au démarrage : afficher une carte ne décode rien,
+ * l'image JavaFX lit directement les pixels du fichier (PixelBuffer sur une tranche du mapping).
+ *
+ * Format (en-tête big-endian, pixels little-endian) :
+ *   int MAGIC, int FORMAT_VERSION, long tampon de build, int nombre d'entrées,
+ *   puis par entrée : UTF "chemin|variante", int largeur, int hauteur, long position des pixels.
+ *
+ * Un fichier projeté doit être un vrai fichier : dans un jar, le pack est d'abord copié
+ * (une fois par build) dans le dossier de la borne. Sans pack, ImageCache décode les vignettes.
+ */
+final class PixelPack {
+
+    static final String RESOURCE = "/fr/isen/wokandroll/thumbnails/pixels.pack";
+    static final int MAGIC = 0x57525058; // "WRPX"
+    static final int FORMAT_VERSION = 1;
+    private static final String CACHE_PREFIX = "pixels-";
+
+    private static final class Entry {
+        final int width;
+        final int height;
+        final long offset;
+
+        Entry(int width, int height, long offset) {
+            this.width = width;
+            this.height = height;
+            this.offset = offset;
+        }
+    }
+
+    private final MappedByteBuffer mapped;
+    private final Map<String, Entry> index;
+    // Une image par entrée ; les pixels restent dans le mapping, hors du tas
+    private final Map<String, Image> images = new ConcurrentHashMap<>();
+
+    private PixelPack(MappedByteBuffer mapped, Map<String, Entry> index) {
+        this.mapped = mapped;
+        this.index = index;
+    }
+
+    /**
+     * Pack embarqué, ou null s'il est absent ou illisible (lancement hors Maven, autre ordre des octets).
+     */
+    static PixelPack open() {
+        if (ByteOrder.nativeOrder() != ByteOrder.LITTLE_ENDIAN) return null;
+        URL url = PixelPack.class.getResource(RESOURCE);
+        if (url == null) return null;
+        try {
+            Path file = "file".equals(url.getProtocol()) ? Path.of(url.toURI()) : extract(url);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                // Le mapping reste valide après la fermeture du canal
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                return new PixelPack(mapped, readIndex(mapped));
+            }
+        } catch (IOException | URISyntaxException | RuntimeException e) {
+            System.err.println("Pack de vignettes inutilisable, décodage des images : " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** Image de la variante exacte ("chemin|carre:100"), ou null si elle n'est pas dans le pack. */
+    Image get(String key) {
+        Entry entry = index.get(key);
+        if (entry == null) return null;
+        return images.computeIfAbsent(key, k -> {
+            ByteBuffer bytes = mapped.slice((int) entry.offset, entry.width * entry.height * 4)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            IntBuffer pixels = bytes.asIntBuffer();
+            return new WritableImage(new PixelBuffer<>(entry.width, entry.height, pixels,
+                    PixelFormat.getIntArgbPreInstance()));
+        });
+    }
+
+    private static Map<String, Entry> readIndex(MappedByteBuffer mapped) throws IOException {
+        ByteBuffer header = mapped.duplicate().order(ByteOrder.BIG_ENDIAN);
+        if (header.getInt() != MAGIC) throw new IOException("pas un pack de vignettes");
+        int version = header.getInt();
+        if (version != FORMAT_VERSION) throw new IOException("format " + version + " non géré");
+        header.getLong(); // tampon de build
+        int count = header.getInt();
+
+        Map<String, Entry> index = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            byte[] key = new byte[header.getShort() & 0xFFFF];
+            header.get(key);
+            int width = header.getInt();
+            int height = header.getInt();
+            long offset = header.getLong();
+            if (offset + (long) width * height * 4 > mapped.capacity()) throw new IOException("pack tronqué");
+            // writeUTF : UTF-8 modifié, identique à l'UTF-8 pour ces chemins
+            index.put(new String(key, StandardCharsets.UTF_8), new Entry(width, height, offset));
+        }
+        return index;
+    }
+
+    /**
+     * Copie du pack du jar dans le dossier de la borne, nommée d'après son tampon de build :
+     * recopiée seulement quand l'application change. Les copies d'anciens builds sont supprimées.
+     */
+    private static Path extract(URL url) throws IOException {
+        long stamp;
+        try (DataInputStream in = new DataInputStream(url.openStream())) {
+            if (in.readInt() != MAGIC) throw new IOException("pas un pack de vignettes");
+            in.readInt();
+            stamp = in.readLong();
+        }
+        Path dir = AppFiles.dataDir().resolve("cache");
+        Files.createDirectories(dir);
+        String name = CACHE_PREFIX + Long.toHexString(stamp) + ".pack";
+        Path target = dir.resolve(name);
+        if (!Files.exists(target)) {
+            Path tmp = Files.createTempFile(dir, CACHE_PREFIX, ".tmp");
+            try (InputStream in = url.openStream()) {
+                Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
+        try (DirectoryStream<Path> old = Files.newDirectoryStream(dir, CACHE_PREFIX + "*.pack")) {
+            for (Path p : old) {
+                if (!p.getFileName().toString().equals(name)) {
+                    try {
+                        Files.delete(p);
+                    } catch (IOException e) {
+                        // Encore projeté par une autre borne du même poste : supprimé plus tard
+                    }
+                }
+            }
+        }
+        return target;
+    }
+}
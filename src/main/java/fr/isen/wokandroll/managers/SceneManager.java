@@ -2,6 +2,8 @@ package fr.isen.wokandroll.managers;
 
 import fr.isen.wokandroll.controllers.ProductDetailsController;
 import fr.isen.wokandroll.models.Product;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
@@ -11,7 +13,23 @@ import javafx.stage.StageStyle;
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
 
+/**
+ * Navigation entre les écrans de la borne.
+ *
+ * Chaque écran (racine + contrôleur) est chargé une seule fois puis gardé en mémoire : revenir sur
+ * "accueil", "plats" ou "cart" ne reparse pas le FXML et ne relance pas initialize() (ni ses appels réseau).
+ * Les contrôleurs ViewLifecycle sont prévenus à chaque affichage / départ pour se mettre à jour.
+ * Au-delà de MAX_CACHED_VIEWS écrans, ou si le tas est presque plein, les écrans les moins récemment
+ * affichés sont oubliés (rechargés au prochain passage).
+ *
+ * Le popup de détails produit est construit une seule fois (FXML, Stage, Scene, CSS), pendant que la borne
+ * attend son premier client (prewarmProductDetails), puis réutilisé à chaque ouverture.
+ */
 public class SceneManager {
     private static SceneManager instance;
     private Stage stage;
@@ -22,6 +40,40 @@ public class SceneManager {
     private static final String VIEWS_PATH = "/fr/isen/wokandroll/views/";
     private static final String CSS_PATH = "/fr/isen/wokandroll/styles/menu.css";
 
+    // Nombre d'écrans gardés en mémoire (0 : rechargés à chaque navigation, comme avant le cache)
+    private static final int MAX_CACHED_VIEWS = Integer.getInteger("wokandroll.views.cache.max", 10);
+    // Part du tas au-delà de laquelle les écrans cachés sont libérés
+    private static final double MAX_HEAP_FRACTION = 0.80;
+
+    /** Écran chargé : racine et contrôleur. */
+    private static final class View {
+        final Parent root;
+        final Object controller;
+
+        View(Parent root, Object controller) {
+            this.root = root;
+            this.controller = controller;
+        }
+    }
+
+    // Ordre d'accès : le premier est le moins récemment affiché
+    private final Map<String, View> views = new LinkedHashMap<>(16, 0.75f, true);
+    private View current;
+
+    // Popup de détails produit, construit une fois
+    private Stage popupStage;
+    private ProductDetailsController popupController;
+
+    // Mesures des changements d'écran, chargement compris (thread JavaFX)
+    private long loads;
+    private long loadNanos;
+    private long reuses;
+    private long reuseNanos;
+    private long evictions;
+    private long popupOpens;
+    private long popupOpenNanos;
+    private long popupOpenStart;
+
     private SceneManager() {}
 
     public static synchronized SceneManager getInstance() {
@@ -46,10 +98,11 @@ public class SceneManager {
      */
     public void loadInitialScene(String viewName) {
         try {
-            Parent root = loadRoot(viewName);
-            Scene scene = new Scene(root, SCENE_WIDTH, SCENE_HEIGHT);
+            View view = view(viewName);
+            Scene scene = new Scene(view.root, SCENE_WIDTH, SCENE_HEIGHT);
             addCss(scene);
             stage.setScene(scene);
+            show(view);
             stage.show();
         } catch (IOException e) {
             handleError("Erreur lors du chargement initial (" + viewName + ")", e);
@@ -58,37 +111,89 @@ public class SceneManager {
 
     /**
      * Remplace le contenu de la scène actuelle (garde la fenêtre et les dimensions).
+     * L'écran vient du cache s'il a déjà été affiché.
      */
     public void switchScene(String viewName) {
         try {
-            Parent root = loadRoot(viewName);
-            stage.getScene().setRoot(root);
+            long start = System.nanoTime();
+            boolean cached = views.containsKey(viewName);
+            View view = view(viewName);
+            if (current != null && current != view) hide(current);
+            stage.getScene().setRoot(view.root);
+            show(view);
+            record(cached, System.nanoTime() - start);
         } catch (IOException e) {
             handleError("Erreur lors du changement de scène vers : " + viewName, e);
         }
     }
 
     /**
-     * Affiche le popup de détails produit (Modal & Transparent).
+     * Oublie les écrans en mémoire (ils seront rechargés au prochain affichage).
+     */
+    public void clearCache() {
+        views.clear();
+    }
+
+    /**
+     * Temps de changement d'écran (FXML chargé ou vue gardée en mémoire) et d'ouverture des détails produit.
+     */
+    public String formatMetrics() {
+        return String.format(Locale.ROOT,
+                "Changements d'écran : %d avec chargement FXML (%.1f ms en moyenne), %d depuis le cache (%.2f ms en moyenne),"
+                        + " %d en mémoire, %d libérés",
+                loads, (loads == 0) ? 0.0 : loadNanos / 1e6 / loads,
+                reuses, (reuses == 0) ? 0.0 : reuseNanos / 1e6 / reuses,
+                views.size(), evictions)
+                + String.format(Locale.ROOT, "%nDétails produit : %d ouvertures (%.1f ms en moyenne jusqu'à l'affichage)",
+                popupOpens, (popupOpens == 0) ? 0.0 : popupOpenNanos / 1e6 / popupOpens);
+    }
+
+    /**
+     * Affiche le popup de détails produit (Modal & Transparent), remis à zéro pour ce produit.
      */
     public void showProductDetails(Product product) {
         try {
-            // 1. Charger le FXML et récupérer le contrôleur
-            FXMLLoader loader = getLoader("product-details");
-            Parent root = loader.load();
+            popupOpenStart = System.nanoTime();
+            buildProductDetails();
+            popupController.setProduct(product);
 
-            ProductDetailsController controller = loader.getController();
-            controller.setProduct(product);
+            // Taille du contenu de ce produit (nombre d'options), centré sur la fenêtre principale
+            popupStage.sizeToScene();
+            Parent root = popupStage.getScene().getRoot();
+            root.applyCss();
+            double width = Math.max(root.minWidth(-1), root.prefWidth(-1));
+            double height = Math.max(root.minHeight(width), root.prefHeight(width));
+            popupStage.setX(stage.getX() + (stage.getWidth() - width) / 2);
+            popupStage.setY(stage.getY() + (stage.getHeight() - height) / 2);
 
-            // 2. Configurer le Stage du popup
-            Stage popupStage = createTransparentModalStage(root);
             popupStage.showAndWait();
+            popupController.detach();
 
         } catch (IOException e) {
             handleError("Impossible d'ouvrir le détail du produit", e);
         }
     }
 
+    /**
+     * Construit le popup de détails produit pendant l'inactivité du démarrage (après la première image
+     * de l'écran d'accueil) : la première ouverture ne paie ni le FXML, ni le CSS, ni la création du Stage.
+     */
+    public void prewarmProductDetails() {
+        new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                stop();
+                Platform.runLater(() -> {
+                    try {
+                        buildProductDetails();
+                    } catch (IOException e) {
+                        handleError("Préchargement du détail produit impossible", e);
+                    }
+                });
+            }
+        }.start();
+    }
+
     // ========================
     //      OUTILS PRIVÉS
     // ========================
@@ -109,6 +214,26 @@ public class SceneManager {
         return popupStage;
     }
 
+    // Une seule fois : FXML, Stage, CSS appliqué et contrôles des options créés d'avance
+    private void buildProductDetails() throws IOException {
+        if (popupStage != null) return;
+        FXMLLoader loader = getLoader("product-details");
+        Parent root = loader.load();
+        ProductDetailsController controller = loader.getController();
+
+        Stage popup = createTransparentModalStage(root);
+        popup.setOnShown(e -> {
+            popupOpens++;
+            popupOpenNanos += System.nanoTime() - popupOpenStart;
+        });
+        root.applyCss();
+        controller.prewarm();
+        root.layout();
+
+        popupStage = popup;
+        popupController = controller;
+    }
+
     /**
      * Récupère un FXMLLoader configuré avec le bon chemin.
      */
@@ -119,11 +244,61 @@ public class SceneManager {
         return new FXMLLoader(resource);
     }
 
+    // ========================
+    //      CACHE DES ÉCRANS
+    // ========================
+
     /**
-     * Raccourci pour charger directement la racine (Parent).
+     * Écran depuis le cache, sinon chargé depuis son FXML (initialize() du contrôleur).
      */
-    private Parent loadRoot(String viewName) throws IOException {
-        return getLoader(viewName).load();
+    private View view(String viewName) throws IOException {
+        View view = views.get(viewName);
+        if (view != null) return view;
+
+        FXMLLoader loader = getLoader(viewName);
+        Parent root = loader.load();
+        view = new View(root, loader.getController());
+        views.put(viewName, view);
+        return view;
+    }
+
+    private void record(boolean cached, long nanos) {
+        if (cached) {
+            reuses++;
+            reuseNanos += nanos;
+        } else {
+            loads++;
+            loadNanos += nanos;
+        }
+    }
+
+    private void show(View view) {
+        current = view;
+        if (view.controller instanceof ViewLifecycle lifecycle) lifecycle.onShow();
+        evictIfNeeded();
+    }
+
+    private void hide(View view) {
+        if (view.controller instanceof ViewLifecycle lifecycle) lifecycle.onHide();
+    }
+
+    // Les moins récemment affichés d'abord ; tas presque plein : tous sauf l'écran affiché
+    private void evictIfNeeded() {
+        boolean lowMemory = heapNearlyFull();
+        Iterator<View> it = views.values().iterator();
+        while (it.hasNext() && (lowMemory || views.size() > MAX_CACHED_VIEWS)) {
+            View view = it.next();
+            if (view == current) continue;
+            it.remove();
+            evictions++;
+        }
+    }
+
+    // Mesure grossière (le tas utilisé compte aussi les objets pas encore collectés)
+    private static boolean heapNearlyFull() {
+        Runtime rt = Runtime.getRuntime();
+        long used = rt.totalMemory() - rt.freeMemory();
+        return used > rt.maxMemory() * MAX_HEAP_FRACTION;
     }
 
     private void addCss(Scene scene) {
@@ -0,0 +1,17 @@
+package fr.isen.wokandroll.managers;
+
+/**
+ * Contrôleur d'un écran gardé en mémoire par SceneManager : l'écran n'est chargé (FXML, initialize())
+ * qu'une fois, puis SceneManager prévient le contrôleur à chaque affichage et à chaque départ.
+ *
+ * initialize() construit l'écran ; onShow() ne rafraîchit que ce qui a pu changer pendant son absence
+ * (total du panier, cartes des plats modifiés...).
+ */
+public interface ViewLifecycle {
+
+    /** L'écran vient d'être affiché, y compris juste après son premier chargement. */
+    default void onShow() {}
+
+    /** L'écran va être remplacé : arrêter ce qui ne sert qu'à l'affichage (minuteries, rafraîchissements). */
+    default void onHide() {}
+}
@@ -6,6 +6,8 @@ import java.util.List;
 public class Cart {
     private static Cart instance;
     private List<CartItem> items;
+    // Incrémenté à chaque ajout / retrait : l'écran du panier ne se redessine que s'il a changé
+    private int modifications;
 
     public static Cart getInstance() {
         if (instance == null) {
@@ -14,12 +16,20 @@ public class Cart {
         return instance;
     }
 
+    /**
+     * Panier indépendant du panier de la borne (une session par borne simulée dans le générateur de charge).
+     */
+    public static Cart newSession() {
+        return new Cart();
+    }
+
     private Cart() {
         this.items = new ArrayList<>();
     }
 
     public void addItem(Product product, int quantity, List<Option> options) {
         items.add(new CartItem(product, quantity, options));
+        modifications++;
     }
 
     public void addItem(Product product, int quantity) {
@@ -29,6 +39,7 @@ public class Cart {
     public void removeItem(int index) {
         if (index >= 0 && index < items.size()) {
             items.remove(index);
+            modifications++;
         }
     }
 
@@ -40,7 +51,12 @@ public class Cart {
         return items.stream().mapToDouble(CartItem::getSubtotal).sum();
     }
 
+    public int getModificationCount() {
+        return modifications;
+    }
+
     public void clear() {
         items.clear();
+        modifications++;
     }
 }
\ No newline at end of file
@@ -0,0 +1,114 @@
+package fr.isen.wokandroll.services;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Photo des mesures réseau de la borne : latences par gabarit d'endpoint (depuis le démarrage),
+ * délai appliqué actuellement, erreurs, requêtes regroupées / couvertes, et état de chaque instance du backend.
+ */
+public final class ApiMetrics {
+
+    public final long takenAt;
+    public final List<EndpointMetrics> endpoints;
+    public final long coalescedGets;
+    public final long hedgedRequests;
+    public final List<BackendMetrics> backends;
+
+    private ApiMetrics(long takenAt, List<EndpointMetrics> endpoints, long coalescedGets, long hedgedRequests, List<BackendMetrics> backends) {
+        this.takenAt = takenAt;
+        this.endpoints = endpoints;
+        this.coalescedGets = coalescedGets;
+        this.hedgedRequests = hedgedRequests;
+        this.backends = backends;
+    }
+
+    public static ApiMetrics snapshot() {
+        List<EndpointMetrics> endpoints = new ArrayList<>();
+        for (EndpointPolicy policy : EndpointPolicy.values()) {
+            LatencyHistogram.Snapshot h = policy.total.snapshot();
+            long errors = policy.errors.sum();
+            if (h.count == 0 && errors == 0) continue;
+            endpoints.add(new EndpointMetrics(policy.template, h.count, errors,
+                    h.meanMicros() / 1_000.0,
+                    h.percentile(0.50) / 1_000.0,
+                    h.percentile(0.95) / 1_000.0,
+                    h.percentile(0.99) / 1_000.0,
+                    h.maxMicros / 1_000.0,
+                    policy.timeout().toMillis()));
+        }
+        List<BackendMetrics> backends = new ArrayList<>();
+        for (BackendRegistry.Backend b : BackendRegistry.getInstance().all()) {
+            backends.add(new BackendMetrics(b.getBaseUrl(), b.isPrimary(), b.isHealthy(), b.getLatencyMs(), b.getCircuitState()));
+        }
+        return new ApiMetrics(System.currentTimeMillis(), Collections.unmodifiableList(endpoints),
+                OrderApiService.coalescedGetCount(), OrderApiService.hedgedRequestCount(),
+                Collections.unmodifiableList(backends));
+    }
+
+    /**
+     * Tableau texte (police à chasse fixe), pour l'overlay de diagnostic.
+     */
+    public String format() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "%-24s %7s %5s %8s %8s %8s %8s %8s%n",
+                "endpoint", "appels", "err", "p50 ms", "p95 ms", "p99 ms", "max ms", "timeout"));
+        for (EndpointMetrics e : endpoints) {
+            sb.append(String.format(Locale.ROOT, "%-24s %7d %5d %8.1f %8.1f %8.1f %8.1f %8d%n",
+                    e.template, e.count, e.errors, e.p50Ms, e.p95Ms, e.p99Ms, e.maxMs, e.timeoutMs));
+        }
+        sb.append(String.format(Locale.ROOT, "%nGET regroupés : %d   requêtes de couverture : %d%n",
+                coalescedGets, hedgedRequests));
+        for (BackendMetrics b : backends) {
+            sb.append(String.format(Locale.ROOT, "%n%-32s %-8s %-9s %8s   circuit %s",
+                    b.baseUrl, b.primary ? "primaire" : "", b.healthy ? "sain" : "EN PANNE",
+                    b.latencyMs < 0 ? "-" : String.format(Locale.ROOT, "%.1f ms", b.latencyMs), b.circuitState));
+        }
+        return sb.toString();
+    }
+
+    public static final class BackendMetrics {
+        public final String baseUrl;
+        public final boolean primary;
+        public final boolean healthy;
+        /** Latence moyenne glissante, -1 si jamais mesurée. */
+        public final double latencyMs;
+        public final String circuitState;
+
+        BackendMetrics(String baseUrl, boolean primary, boolean healthy, double latencyMs, String circuitState) {
+            this.baseUrl = baseUrl;
+            this.primary = primary;
+            this.healthy = healthy;
+            this.latencyMs = latencyMs;
+            this.circuitState = circuitState;
+        }
+    }
+
+    public static final class EndpointMetrics {
+        public final String template;
+        public final long count;
+        public final long errors;
+        public final double meanMs;
+        public final double p50Ms;
+        public final double p95Ms;
+        public final double p99Ms;
+        public final double maxMs;
+        /** Délai appliqué aux prochaines requêtes (adapté au p99 récent). */
+        public final long timeoutMs;
+
+        EndpointMetrics(String template, long count, long errors, double meanMs, double p50Ms,
+                        double p95Ms, double p99Ms, double maxMs, long timeoutMs) {
+            this.template = template;
+            this.count = count;
+            this.errors = errors;
+            this.meanMs = meanMs;
+            this.p50Ms = p50Ms;
+            this.p95Ms = p95Ms;
+            this.p99Ms = p99Ms;
+            this.maxMs = maxMs;
+            this.timeoutMs = timeoutMs;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package fr.isen.wokandroll.services;
+
+/**
+ * Résultat d'une lecture qui n'échoue jamais : la valeur fraîche du backend,
+ * la dernière valeur connue si le backend ne répond pas, ou rien du tout.
+ */
+public final class ApiResult<T> {
+
+    public enum Status {
+        /** Réponse du backend à cet appel. */
+        FRESH,
+        /** Backend injoignable : dernière valeur reçue auparavant. */
+        STALE,
+        /** Backend injoignable et aucune valeur connue. */
+        UNAVAILABLE
+    }
+
+    private final Status status;
+    private final T value;
+    private final Throwable error;
+
+    private ApiResult(Status status, T value, Throwable error) {
+        this.status = status;
+        this.value = value;
+        this.error = error;
+    }
+
+    public static <T> ApiResult<T> fresh(T value) {
+        return new ApiResult<>(Status.FRESH, value, null);
+    }
+
+    public static <T> ApiResult<T> stale(T value, Throwable error) {
+        return new ApiResult<>(Status.STALE, value, error);
+    }
+
+    public static <T> ApiResult<T> unavailable(Throwable error) {
+        return new ApiResult<>(Status.UNAVAILABLE, null, error);
+    }
+
+    /** STALE si une valeur de repli existe, sinon UNAVAILABLE. */
+    static <T> ApiResult<T> fallback(T lastKnown, Throwable error) {
+        return (lastKnown != null) ? stale(lastKnown, error) : unavailable(error);
+    }
+
+    public Status getStatus() { return status; }
+    /** Valeur fraîche ou de repli ; null si UNAVAILABLE. */
+    public T getValue() { return value; }
+    /** Cause de l'échec (STALE / UNAVAILABLE), sinon null. */
+    public Throwable getError() { return error; }
+
+    public boolean isFresh() { return status == Status.FRESH; }
+    public boolean hasValue() { return value != null; }
+}
@@ -0,0 +1,24 @@
+package fr.isen.wokandroll.services;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Emplacement des fichiers locaux de la borne (journal des commandes, caches...).
+ * Par défaut ~/.wokandroll, modifiable avec -Dwokandroll.data.dir=...
+ */
+public final class AppFiles {
+
+    private AppFiles() {}
+
+    public static Path dataDir() throws IOException {
+        String configured = System.getProperty("wokandroll.data.dir");
+        Path dir = (configured != null && !configured.isBlank())
+                ? Paths.get(configured)
+                : Paths.get(System.getProperty("user.home"), ".wokandroll");
+        Files.createDirectories(dir);
+        return dir;
+    }
+}
@@ -0,0 +1,256 @@
+package fr.isen.wokandroll.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Instances du backend connues de la borne, lues depuis la configuration.
+ *
+ * Lectures : instance saine la plus rapide (latence moyenne glissante).
+ * Écritures : la première instance déclarée (primaire), puis les autres dans l'ordre si elle ne répond pas.
+ * Avec plusieurs instances, chacune est vérifiée en arrière-plan toutes les health.interval.ms,
+ * par un GET conditionnel sur health.path : une instance à jour répond 304, sans corps à produire ni à lire.
+ *
+ * Configuration, de la plus prioritaire à la moins prioritaire :
+ *   -Dwokandroll.backends=http://hote1:7001,http://hote2:7001
+ *   fichier backends.properties du dossier de la borne (AppFiles)
+ *   backends.properties embarqué dans l'application
+ */
+public class BackendRegistry {
+
+    private static BackendRegistry instance;
+
+    private static final String CONFIG_FILE = "backends.properties";
+    private static final String CONFIG_RESOURCE = "/fr/isen/wokandroll/" + CONFIG_FILE;
+    private static final String DEFAULT_URL = "http://localhost:7001";
+    private static final String DEFAULT_HEALTH_PATH = "/categories/1/plats";
+    private static final long DEFAULT_HEALTH_INTERVAL_MS = 5_000;
+    private static final Duration HEALTH_TIMEOUT = Duration.ofSeconds(2);
+    // Poids de la dernière mesure dans la latence moyenne glissante
+    private static final double EWMA_ALPHA = 0.3;
+
+    private final List<Backend> backends;
+    private final String healthPath;
+    private final long healthIntervalMs;
+    private ScheduledExecutorService healthChecker;
+
+    BackendRegistry(List<String> urls, String healthPath, long healthIntervalMs) {
+        List<Backend> list = new ArrayList<>();
+        for (String url : urls) {
+            list.add(new Backend(url, list.isEmpty()));
+        }
+        this.backends = Collections.unmodifiableList(list);
+        this.healthPath = healthPath;
+        this.healthIntervalMs = healthIntervalMs;
+    }
+
+    public static synchronized BackendRegistry getInstance() {
+        if (instance == null) {
+            instance = fromConfig(loadConfig());
+            instance.startHealthChecks();
+        }
+        return instance;
+    }
+
+    // ========================
+    //      CONFIGURATION
+    // ========================
+
+    static BackendRegistry fromConfig(Properties config) {
+        List<String> urls = new ArrayList<>();
+        for (String url : config.getProperty("backends", DEFAULT_URL).split(",")) {
+            String trimmed = url.trim();
+            // Sans "/" final : les endpoints commencent déjà par "/"
+            while (trimmed.endsWith("/")) trimmed = trimmed.substring(0, trimmed.length() - 1);
+            if (!trimmed.isEmpty()) urls.add(trimmed);
+        }
+        if (urls.isEmpty()) urls.add(DEFAULT_URL);
+
+        String healthPath = config.getProperty("health.path", DEFAULT_HEALTH_PATH).trim();
+        long interval = DEFAULT_HEALTH_INTERVAL_MS;
+        try {
+            interval = Long.parseLong(config.getProperty("health.interval.ms", String.valueOf(DEFAULT_HEALTH_INTERVAL_MS)).trim());
+        } catch (NumberFormatException e) {
+            System.err.println("health.interval.ms invalide, " + DEFAULT_HEALTH_INTERVAL_MS + " ms utilisé");
+        }
+        return new BackendRegistry(urls, healthPath, interval);
+    }
+
+    private static Properties loadConfig() {
+        Properties config = new Properties();
+
+        try (InputStream in = BackendRegistry.class.getResourceAsStream(CONFIG_RESOURCE)) {
+            if (in != null) config.load(in);
+        } catch (IOException e) {
+            System.err.println("Configuration embarquée illisible : " + e.getMessage());
+        }
+
+        try {
+            Path local = AppFiles.dataDir().resolve(CONFIG_FILE);
+            if (Files.exists(local)) {
+                try (Reader reader = Files.newBufferedReader(local, StandardCharsets.UTF_8)) {
+                    config.load(reader);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Configuration locale des backends illisible : " + e.getMessage());
+        }
+
+        String override = System.getProperty("wokandroll.backends");
+        if (override != null && !override.isBlank()) {
+            config.setProperty("backends", override);
+        }
+        return config;
+    }
+
+    // ========================
+    //      ROUTAGE
+    // ========================
+
+    public List<Backend> all() {
+        return backends;
+    }
+
+    Backend primary() {
+        return backends.get(0);
+    }
+
+    /**
+     * Instance pour une lecture : la plus rapide parmi les saines dont le circuit n'est pas ouvert,
+     * sinon le primaire (qui échouera vite si son circuit est ouvert).
+     */
+    Backend forRead() {
+        return forRead(null);
+    }
+
+    /**
+     * Idem en évitant une instance (couverture ou nouvel essai ailleurs) ; renvoie l'instance évitée
+     * s'il n'y a pas d'autre choix.
+     */
+    Backend forRead(Backend avoid) {
+        Backend best = null;
+        for (Backend b : backends) {
+            if (b == avoid || !b.isAvailable()) continue;
+            if (best == null || b.latencyRank() < best.latencyRank()) best = b;
+        }
+        if (best != null) return best;
+        return (avoid != null) ? avoid : primary();
+    }
+
+    /**
+     * Ordre d'essai d'une écriture : le primaire d'abord, puis les autres, les instances en panne en dernier.
+     */
+    List<Backend> forWrite() {
+        List<Backend> order = new ArrayList<>(backends);
+        order.sort(Comparator.comparing((Backend b) -> !b.isAvailable()));
+        return order;
+    }
+
+    // ========================
+    //      SANTÉ
+    // ========================
+
+    private synchronized void startHealthChecks() {
+        // Une seule instance : rien à choisir, le disjoncteur suffit
+        if (backends.size() < 2 || healthChecker != null) return;
+        healthChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "backend-health");
+            t.setDaemon(true);
+            return t;
+        });
+        healthChecker.scheduleWithFixedDelay(this::checkAll, 0, healthIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void shutdown() {
+        if (healthChecker != null) healthChecker.shutdownNow();
+    }
+
+    private void checkAll() {
+        for (Backend backend : backends) {
+            HttpRequest.Builder builder = HttpRequest.newBuilder()
+                    .uri(backend.resolve(healthPath))
+                    .timeout(HEALTH_TIMEOUT)
+                    .GET();
+            // ETag de la dernière réponse connue (validateurs partagés par toutes les instances)
+            OrderApiService.validators.addValidators(healthPath, builder);
+            HttpRequest request = builder.build();
+            long start = System.nanoTime();
+            OrderApiService.httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        if (error == null && response.statusCode() < 500) {
+                            backend.markHealthy((System.nanoTime() - start) / 1_000_000);
+                        } else {
+                            backend.markUnhealthy(error != null ? error.toString() : "HTTP " + response.statusCode());
+                        }
+                    });
+        }
+    }
+
+    // ==============================
+    //     INSTANCE
+    // ==============================
+
+    public static final class Backend {
+        final String baseUrl;
+        final boolean primary;
+        // 5 échecs consécutifs : plus aucun appel vers cette instance pendant 10 s
+        final CircuitBreaker breaker = new CircuitBreaker(5, 10_000);
+
+        private volatile boolean healthy = true;
+        // Latence moyenne glissante en ms ; -1 tant qu'aucune mesure
+        private volatile double latencyMs = -1;
+
+        Backend(String baseUrl, boolean primary) {
+            this.baseUrl = baseUrl;
+            this.primary = primary;
+        }
+
+        URI resolve(String endpoint) {
+            return URI.create(baseUrl + endpoint);
+        }
+
+        public String getBaseUrl() { return baseUrl; }
+        public boolean isPrimary() { return primary; }
+        public boolean isHealthy() { return healthy; }
+        public double getLatencyMs() { return latencyMs; }
+        public String getCircuitState() { return breaker.state().name(); }
+
+        boolean isAvailable() {
+            return healthy && breaker.state() != CircuitBreaker.State.OPEN;
+        }
+
+        // Instance jamais mesurée : classée après celles dont on connaît la latence
+        private double latencyRank() {
+            return (latencyMs < 0) ? Double.MAX_VALUE / 2 : latencyMs;
+        }
+
+        /** Réponse reçue (vérification de santé ou vraie requête). */
+        void markHealthy(long elapsedMs) {
+            if (!healthy) System.err.println("Backend " + baseUrl + " de nouveau disponible");
+            healthy = true;
+            double previous = latencyMs;
+            latencyMs = (previous < 0) ? elapsedMs : EWMA_ALPHA * elapsedMs + (1 - EWMA_ALPHA) * previous;
+        }
+
+        void markUnhealthy(String reason) {
+            if (healthy) System.err.println("Backend " + baseUrl + " indisponible : " + reason);
+            healthy = false;
+        }
+    }
+}
@@ -0,0 +1,546 @@
+package fr.isen.wokandroll.services;
+
+import fr.isen.wokandroll.models.Option;
+import javafx.application.Platform;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Accès asynchrone au catalogue (plats par catégorie, options d'un plat).
+ * Utilise le HttpClient partagé d'OrderApiService : aucune requête ne bloque le thread JavaFX.
+ *
+ * Le dernier catalogue reçu est gardé en mémoire et sauvegardé sur disque (CatalogSnapshot) :
+ * au démarrage, les écrans s'affichent depuis ce snapshot puis se mettent à jour avec le réseau.
+ *
+ * Le catalogue a un numéro de version : une fois une version connue, la mise à jour ne demande que
+ * les changements depuis cette version (sync), au lieu de retélécharger les catégories.
+ *
+ * Les changements de disponibilité ou de prix d'un plat (poussés par le backend via CatalogEventStream,
+ * ou vus au rechargement d'une catégorie) sont signalés plat par plat aux écrans abonnés (onPlatChanged).
+ */
+public class CatalogClient {
+
+    private static CatalogClient instance;
+
+    /** Exécuteur qui renvoie un résultat sur le thread JavaFX (à passer aux méthodes *Async). */
+    public static final Executor FX = Platform::runLater;
+
+    /** Catégories connues du backend (1=Entrée, 2=Plat, 3=Boisson, 4=Dessert). */
+    public static final int[] CATEGORY_IDS = {1, 2, 3, 4};
+    private static final int CATEGORIE_BOISSON = 3;
+    private static final int CATEGORIE_DESSERT = 4;
+
+    // Délai de regroupement des sauvegardes du snapshot
+    private static final long SNAPSHOT_DELAY_MS = 2_000;
+    // Durée pendant laquelle une catégorie téléchargée est servie sans nouvel appel réseau
+    private static final long CATEGORY_TTL_MS = 60_000;
+    // Options : validité, taille maximale du cache et nombre de plats préchargés en parallèle
+    private static final long OPTIONS_TTL_MS = 10 * 60_000;
+    private static final int OPTIONS_MAX_ENTRIES = 512;
+    private static final int OPTIONS_WARMUP_PARALLELISM = 4;
+    private static final String CHANGES_ENDPOINT = "/catalogue/changements";
+
+    // Dernières données valides reçues (ou relues depuis le snapshot) ; modifiées sous le verrou de l'instance,
+    // pour qu'un changement poussé ne soit pas écrasé par une synchro ou un téléchargement simultané
+    private final Map<Integer, List<PlatDto>> categories = new ConcurrentHashMap<>();
+    private final OptionsCache options = new OptionsCache(OPTIONS_MAX_ENTRIES, OPTIONS_TTL_MS);
+    // Date (ms) du dernier téléchargement réussi de chaque catégorie ; absent = jamais vérifiée
+    private final Map<Integer, Long> categoryFetchedAt = new ConcurrentHashMap<>();
+    // Version du catalogue en mémoire (-1 : inconnue) ; false si le backend n'a pas /catalogue/changements
+    private volatile long version = -1;
+    private volatile boolean changesSupported = true;
+
+    private final ScheduledExecutorService snapshotWriter = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "catalog-snapshot");
+        t.setDaemon(true);
+        return t;
+    });
+    private ScheduledFuture<?> pendingSnapshot;
+
+    // Écrans à prévenir d'un changement de plat (appelés sur le thread JavaFX)
+    private final List<Consumer<PlatDto>> platListeners = new CopyOnWriteArrayList<>();
+
+    private CatalogClient() {}
+
+    public static synchronized CatalogClient getInstance() {
+        if (instance == null) {
+            instance = new CatalogClient();
+        }
+        return instance;
+    }
+
+    // ========================
+    //      SNAPSHOT
+    // ========================
+
+    /**
+     * Recharge le dernier catalogue sauvegardé (un seul fichier binaire, quelques millisecondes).
+     */
+    public void loadSnapshot() {
+        try {
+            CatalogSnapshot snapshot = CatalogSnapshot.read(CatalogSnapshot.defaultPath());
+            if (snapshot == null) return;
+            if (categories.isEmpty() && version < 0) version = snapshot.version;
+            snapshot.categories.forEach(categories::putIfAbsent);
+            snapshot.options.forEach(options::putStale);
+        } catch (IOException e) {
+            System.err.println("Snapshot du catalogue indisponible : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Télécharge toutes les catégories en parallèle ; le future se termine quand toutes ont répondu.
+     */
+    public CompletableFuture<Void> refreshAll() {
+        CompletableFuture<?>[] loads = new CompletableFuture<?>[CATEGORY_IDS.length];
+        for (int i = 0; i < CATEGORY_IDS.length; i++) {
+            loads[i] = fetchCategory(CATEGORY_IDS[i]).exceptionally(e -> {
+                System.err.println("Erreur API : " + e.getMessage());
+                return null;
+            });
+        }
+        return CompletableFuture.allOf(loads);
+    }
+
+    /**
+     * Précharge les options de tous les plats disponibles qui en ont (ni desserts, ni boissons),
+     * pour qu'ouvrir une fiche produit ne touche jamais le réseau.
+     */
+    public CompletableFuture<Void> warmOptions() {
+        List<Integer> ids = new ArrayList<>();
+        categories.forEach((idCategorie, plats) -> {
+            if (idCategorie == CATEGORIE_BOISSON || idCategorie == CATEGORIE_DESSERT) return;
+            for (PlatDto plat : plats) {
+                if (plat.disponible && !options.isFresh(plat.idPlat)) ids.add(plat.idPlat);
+            }
+        });
+
+        // OPTIONS_WARMUP_PARALLELISM chaînes de requêtes successives : jamais plus de N appels à la fois
+        CompletableFuture<?>[] chains = new CompletableFuture<?>[OPTIONS_WARMUP_PARALLELISM];
+        for (int c = 0; c < chains.length; c++) {
+            CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+            for (int i = c; i < ids.size(); i += chains.length) {
+                int idPlat = ids.get(i);
+                chain = chain.thenCompose(v -> fetchOptions(idPlat).handle((r, e) -> null));
+            }
+            chains[c] = chain;
+        }
+        return CompletableFuture.allOf(chains);
+    }
+
+    private synchronized void scheduleSnapshot() {
+        if (pendingSnapshot != null && !pendingSnapshot.isDone()) return;
+        pendingSnapshot = snapshotWriter.schedule(this::writeSnapshot, SNAPSHOT_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void writeSnapshot() {
+        try {
+            new CatalogSnapshot(new LinkedHashMap<>(categories), options.copy(), version)
+                    .write(CatalogSnapshot.defaultPath());
+        } catch (IOException e) {
+            System.err.println("Impossible d'écrire le snapshot du catalogue : " + e.getMessage());
+        }
+    }
+
+    // ========================
+    //      CATALOGUE
+    // ========================
+
+    /**
+     * Affiche une catégorie : tout de suite depuis le cache s'il existe (thread JavaFX),
+     * puis une seconde fois seulement si le réseau renvoie un contenu différent.
+     */
+    public void loadCategory(int idCategorie, Consumer<List<PlatDto>> onFx) {
+        List<PlatDto> cached = categories.get(idCategorie);
+        if (cached != null) {
+            onFx.accept(cached);
+            if (isFresh(idCategorie)) return;
+        }
+
+        (cached == null ? fetchCategory(idCategorie) : refreshCategory(idCategorie))
+                .thenAcceptAsync(fresh -> {
+                    if (!fresh.equals(cached)) onFx.accept(fresh);
+                }, FX)
+                .exceptionally(e -> {
+                    System.err.println("Erreur API : " + e.getMessage());
+                    return null;
+                });
+    }
+
+    /**
+     * Plats d'une catégorie, depuis le cache si possible, sinon depuis le réseau.
+     * Une entrée plus vieille que CATEGORY_TTL_MS est servie telle quelle et rafraîchie en arrière-plan.
+     */
+    public CompletableFuture<List<PlatDto>> category(int idCategorie) {
+        List<PlatDto> cached = categories.get(idCategorie);
+        if (cached == null) {
+            return fetchCategory(idCategorie);
+        }
+        if (!isFresh(idCategorie)) {
+            refreshCategory(idCategorie).exceptionally(e -> null);
+        }
+        return CompletableFuture.completedFuture(cached);
+    }
+
+    /**
+     * Rafraîchit une catégorie déjà en cache : par les changements depuis la version connue si possible
+     * (une seule petite requête pour tout le catalogue), sinon en la retéléchargeant.
+     */
+    private CompletableFuture<List<PlatDto>> refreshCategory(int idCategorie) {
+        if (version < 0 || !changesSupported) return fetchCategory(idCategorie);
+        return sync().thenApply(v -> categories.getOrDefault(idCategorie, List.of()));
+    }
+
+    private boolean isFresh(int idCategorie) {
+        Long fetchedAt = categoryFetchedAt.get(idCategorie);
+        return fetchedAt != null && System.currentTimeMillis() - fetchedAt < CATEGORY_TTL_MS;
+    }
+
+    /**
+     * Options déjà connues d'un plat (rafraîchies en arrière-plan si expirées), ou null si jamais chargées.
+     * Appel sans attente : utilisable directement sur le thread JavaFX.
+     */
+    public List<Option> cachedOptions(int idPlat) {
+        List<Option> cached = options.get(idPlat);
+        if (cached != null && !options.isFresh(idPlat)) {
+            fetchOptions(idPlat).exceptionally(e -> null);
+        }
+        return cached;
+    }
+
+    /**
+     * Plats d'une catégorie (1=Entrée, 2=Plat, 3=Boisson, 4=Dessert), toujours depuis le réseau.
+     */
+    public CompletableFuture<List<PlatDto>> fetchCategory(int idCategorie) {
+        return OrderApiService.getJsonAsync("/categories/" + idCategorie + "/plats", CatalogClient::parsePlats)
+                .thenApply(plats -> {
+                    synchronized (this) {
+                        categoryFetchedAt.put(idCategorie, System.currentTimeMillis());
+                        List<PlatDto> previous = categories.get(idCategorie);
+                        remember(categories, idCategorie, plats);
+                        fireChanges(previous, plats);
+                    }
+                    return plats;
+                });
+    }
+
+    /**
+     * Options disponibles pour un plat, toujours depuis le réseau.
+     */
+    public CompletableFuture<List<Option>> fetchOptions(int idPlat) {
+        return OrderApiService.getJsonAsync("/plats/" + idPlat + "/options", CatalogClient::parseOptions)
+                .thenApply(list -> {
+                    if (options.put(idPlat, list)) scheduleSnapshot();
+                    return list;
+                });
+    }
+
+    private <V> V remember(Map<Integer, V> cache, int key, V value) {
+        V previous = cache.put(key, value);
+        if (previous != value) {
+            scheduleSnapshot();
+        }
+        return value;
+    }
+
+    // Décodage en flux, directement dans des listes non modifiables (la même instance est resservie sur un 304)
+    private static List<PlatDto> parsePlats(String json) {
+        try {
+            return CatalogJson.readPlats(new StringReader(json));
+        } catch (IOException | IllegalStateException e) {
+            throw new UncheckedIOException(new IOException("JSON du catalogue invalide", e));
+        }
+    }
+
+    private static List<Option> parseOptions(String json) {
+        try {
+            return CatalogJson.readOptions(new StringReader(json));
+        } catch (IOException | IllegalStateException e) {
+            throw new UncheckedIOException(new IOException("JSON des options invalide", e));
+        }
+    }
+
+    // ========================
+    //   SYNCHRO PAR VERSION
+    // ========================
+
+    /**
+     * Met le catalogue à jour : seulement les plats et options modifiés depuis la version connue.
+     * Rechargement complet des catégories si la version est inconnue, si le backend juge l'écart trop grand,
+     * ou s'il ne connaît pas /catalogue/changements (les catégories inchangées répondent alors 304).
+     */
+    public CompletableFuture<Void> sync() {
+        if (!changesSupported) return refreshAll();
+        long since = version;
+        return OrderApiService.getJsonAsync(CHANGES_ENDPOINT + "?depuis=" + since, CatalogClient::parseChanges, false)
+                .thenCompose(changes -> {
+                    if (changes.rechargementComplet || since < 0) return reloadAll(changes.version);
+                    applyChanges(changes);
+                    return CompletableFuture.<Void>completedFuture(null);
+                })
+                .exceptionallyCompose(e -> {
+                    Throwable cause = (e instanceof CompletionException && e.getCause() != null) ? e.getCause() : e;
+                    if (cause instanceof OrderApiService.HttpStatusException
+                            && ((OrderApiService.HttpStatusException) cause).status == 404) {
+                        changesSupported = false;
+                        System.err.println("Endpoint " + CHANGES_ENDPOINT + " absent, rechargement par catégorie.");
+                    } else {
+                        System.err.println("Synchro du catalogue impossible : " + cause.getMessage());
+                    }
+                    return refreshAll();
+                });
+    }
+
+    /** Version du catalogue en mémoire, -1 si inconnue. */
+    long version() {
+        return version;
+    }
+
+    /**
+     * Version du catalogue atteinte par un changement poussé (CatalogEventStream) : acceptée seulement
+     * si elle suit directement la version connue, sinon des changements manquent et on synchronise.
+     */
+    void advanceVersion(long eventVersion) {
+        synchronized (this) {
+            if (version < 0 || eventVersion <= version) return;
+            if (eventVersion == version + 1) {
+                version = eventVersion;
+                return;
+            }
+        }
+        sync();
+    }
+
+    // Toutes les catégories, en échec si l'une d'elles n'a pas pu être téléchargée
+    private CompletableFuture<Void> reloadAll(long newVersion) {
+        CompletableFuture<?>[] loads = new CompletableFuture<?>[CATEGORY_IDS.length];
+        for (int i = 0; i < CATEGORY_IDS.length; i++) {
+            loads[i] = fetchCategory(CATEGORY_IDS[i]);
+        }
+        return CompletableFuture.allOf(loads).thenRun(() -> {
+            synchronized (this) {
+                if (newVersion > version) version = newVersion;
+            }
+            scheduleSnapshot();
+        });
+    }
+
+    /**
+     * Fusionne les changements dans le catalogue en mémoire : un plat modifié garde sa place,
+     * un plat ajouté (ou changé de catégorie) va en fin de catégorie, un plat supprimé disparaît.
+     * Tout ce qui n'est pas cité est confirmé à jour.
+     */
+    private synchronized void applyChanges(ChangesDto changes) {
+        // Réponse dépassée par des changements déjà appliqués
+        if (changes.version < version) return;
+
+        Map<Integer, PlatDto> updated = new LinkedHashMap<>();
+        for (PlatDto plat : changes.plats) updated.put(plat.idPlat, plat);
+        Set<Integer> removed = new HashSet<>(changes.supprimes);
+
+        Map<Integer, List<PlatDto>> touched = new HashMap<>();
+        Set<Integer> placed = new HashSet<>();
+        categories.forEach((idCategorie, plats) -> {
+            List<PlatDto> merged = null;
+            for (int i = 0; i < plats.size(); i++) {
+                PlatDto plat = plats.get(i);
+                PlatDto replacement = updated.get(plat.idPlat);
+                boolean drop = removed.contains(plat.idPlat)
+                        || (replacement != null && categoryOf(replacement, idCategorie) != idCategorie);
+                if (!drop && replacement == null) {
+                    if (merged != null) merged.add(plat);
+                    continue;
+                }
+                if (merged == null) merged = new ArrayList<>(plats.subList(0, i));
+                if (!drop) {
+                    merged.add(replacement);
+                    placed.add(plat.idPlat);
+                }
+            }
+            if (merged != null) touched.put(idCategorie, merged);
+        });
+        for (PlatDto plat : updated.values()) {
+            if (placed.contains(plat.idPlat)) continue;
+            int idCategorie = categoryOf(plat, -1);
+            if (idCategorie < 0) continue;
+            touched.computeIfAbsent(idCategorie, id -> new ArrayList<>(categories.getOrDefault(id, List.of()))).add(plat);
+        }
+
+        Map<Integer, List<PlatDto>> before = new HashMap<>();
+        touched.forEach((idCategorie, plats) ->
+                before.put(idCategorie, categories.put(idCategorie, Collections.unmodifiableList(plats))));
+        for (int idPlat : removed) options.remove(idPlat);
+        options.confirmAll();
+        changes.options.forEach(options::put);
+
+        long now = System.currentTimeMillis();
+        for (int idCategorie : categories.keySet()) categoryFetchedAt.put(idCategorie, now);
+        version = changes.version;
+        scheduleSnapshot();
+        touched.forEach((idCategorie, plats) -> fireChanges(before.get(idCategorie), plats));
+    }
+
+    private static int categoryOf(PlatDto plat, int fallback) {
+        return (plat.categorie != null) ? plat.categorie.idCategorie : fallback;
+    }
+
+    private static ChangesDto parseChanges(String json) {
+        try {
+            return CatalogJson.readChanges(new StringReader(json));
+        } catch (IOException | IllegalStateException e) {
+            throw new UncheckedIOException(new IOException("JSON des changements du catalogue invalide", e));
+        }
+    }
+
+    // ========================
+    //   CHANGEMENTS EN DIRECT
+    // ========================
+
+    /** Abonnement à onPlatChanged. */
+    public interface Subscription {
+        void cancel();
+    }
+
+    /**
+     * Prévient le listener (sur le thread JavaFX) à chaque changement de disponibilité ou de prix d'un plat,
+     * avec le plat à jour. L'abonnement doit être annulé quand l'écran disparaît.
+     */
+    public Subscription onPlatChanged(Consumer<PlatDto> listener) {
+        platListeners.add(listener);
+        return () -> platListeners.remove(listener);
+    }
+
+    /**
+     * Applique un changement reçu du backend au catalogue en mémoire (champs null : inchangés).
+     */
+    synchronized void applyChange(int idPlat, Boolean disponible, Double prix) {
+        for (Map.Entry<Integer, List<PlatDto>> entry : categories.entrySet()) {
+            List<PlatDto> plats = entry.getValue();
+            for (int i = 0; i < plats.size(); i++) {
+                PlatDto current = plats.get(i);
+                if (current.idPlat != idPlat) continue;
+
+                PlatDto updated = withChange(current, disponible, prix);
+                if (updated.equals(current)) return;
+                List<PlatDto> copy = new ArrayList<>(plats);
+                copy.set(i, updated);
+                categories.put(entry.getKey(), Collections.unmodifiableList(copy));
+                scheduleSnapshot();
+                firePlatChanged(updated);
+                return;
+            }
+        }
+    }
+
+    private static PlatDto withChange(PlatDto plat, Boolean disponible, Double prix) {
+        PlatDto copy = new PlatDto();
+        copy.idPlat = plat.idPlat;
+        copy.nom = plat.nom;
+        copy.description = plat.description;
+        copy.prix = (prix != null) ? prix : plat.prix;
+        copy.disponible = (disponible != null) ? disponible : plat.disponible;
+        copy.categorie = plat.categorie;
+        return copy;
+    }
+
+    /** Signale les plats dont la disponibilité ou le prix diffère entre deux versions d'une catégorie. */
+    private void fireChanges(List<PlatDto> previous, List<PlatDto> fresh) {
+        if (previous == null || previous == fresh || platListeners.isEmpty()) return;
+        Map<Integer, PlatDto> before = new HashMap<>();
+        for (PlatDto plat : previous) before.put(plat.idPlat, plat);
+        for (PlatDto plat : fresh) {
+            PlatDto old = before.get(plat.idPlat);
+            if (old != null && (old.disponible != plat.disponible || Double.compare(old.prix, plat.prix) != 0)) {
+                firePlatChanged(plat);
+            }
+        }
+    }
+
+    private void firePlatChanged(PlatDto plat) {
+        // Sans écran abonné (ou sans JavaFX, ex. générateur de charge) : rien à faire
+        if (platListeners.isEmpty()) return;
+        Platform.runLater(() -> {
+            for (Consumer<PlatDto> listener : platListeners) listener.accept(plat);
+        });
+    }
+
+    // ==============================
+    //     DTOs
+    // ==============================
+
+    public static class CategorieDto {
+        public int idCategorie;
+        public String nom;
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof CategorieDto)) return false;
+            CategorieDto that = (CategorieDto) o;
+            return idCategorie == that.idCategorie && Objects.equals(nom, that.nom);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(idCategorie, nom);
+        }
+    }
+
+    /** Réponse de /catalogue/changements (voir CatalogJson.readChanges). */
+    static class ChangesDto {
+        long version = -1;
+        boolean rechargementComplet;
+        List<PlatDto> plats = List.of();
+        List<Integer> supprimes = List.of();
+        Map<Integer, List<Option>> options = Map.of();
+    }
+
+    public static class PlatDto {
+        public int idPlat;
+        public String nom;
+        public String description;
+        public double prix;
+        public boolean disponible;
+        public CategorieDto categorie;
+
+        // Comparaison par contenu : évite de reconstruire un écran quand le réseau confirme le snapshot
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof PlatDto)) return false;
+            PlatDto that = (PlatDto) o;
+            return idPlat == that.idPlat
+                    && Double.compare(prix, that.prix) == 0
+                    && disponible == that.disponible
+                    && Objects.equals(nom, that.nom)
+                    && Objects.equals(description, that.description)
+                    && Objects.equals(categorie, that.categorie);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(idPlat, nom, prix, disponible);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package fr.isen.wokandroll.services;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import fr.isen.wokandroll.services.BackendRegistry.Backend;
+
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Flux des changements du catalogue poussés par le backend (Server-Sent Events sur /catalogue/evenements).
+ *
+ * L'id de chaque événement est la version du catalogue qu'il produit. Un événement "plat"
+ * ({"idPlat":3,"disponible":false} ou {"idPlat":3,"prix":6.5}) est appliqué au catalogue en mémoire
+ * de CatalogClient, qui prévient les écrans concernés. "catalogue" (plat ajouté ou retiré) et "reset"
+ * (trop de changements manqués) déclenchent une synchro par version (CatalogClient.sync).
+ *
+ * Connexion perdue : reconnexion avec un délai qui double (plafonné), en renvoyant Last-Event-ID pour
+ * recevoir les changements manqués (à la première connexion, la version du catalogue en mémoire).
+ * Sans nouvelles du serveur pendant IDLE_TIMEOUT_MS, la connexion est considérée morte.
+ * Un backend sans cet endpoint (404) désactive le flux : le TTL des catégories suffit.
+ */
+public class CatalogEventStream {
+
+    private static CatalogEventStream instance;
+
+    static final String ENDPOINT = "/catalogue/evenements";
+    private static final long MIN_RECONNECT_MS = 1_000;
+    private static final long MAX_RECONNECT_MS = 60_000;
+    // Le serveur envoie un commentaire toutes les 15 s au plus
+    private static final long IDLE_TIMEOUT_MS = 45_000;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "catalog-events");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private volatile boolean running = false;
+    private volatile String lastEventId;
+    private volatile long lastActivity;
+    private long reconnectMs = MIN_RECONNECT_MS;
+    // Connexion en cours ; une réponse d'une connexion plus ancienne est ignorée
+    private Connection current;
+
+    private CatalogEventStream() {}
+
+    public static synchronized CatalogEventStream getInstance() {
+        if (instance == null) {
+            instance = new CatalogEventStream();
+        }
+        return instance;
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        scheduler.execute(this::connect);
+        scheduler.scheduleWithFixedDelay(this::checkIdle, IDLE_TIMEOUT_MS, IDLE_TIMEOUT_MS / 3, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (current != null) current.cancel();
+        scheduler.shutdownNow();
+    }
+
+    // ========================
+    //      CONNEXION
+    // ========================
+
+    private synchronized void connect() {
+        if (!running) return;
+        Backend node = BackendRegistry.getInstance().forRead();
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(node.resolve(ENDPOINT))
+                .header("Accept", "text/event-stream")
+                .GET();
+        long catalogVersion = CatalogClient.getInstance().version();
+        if (lastEventId != null) builder.header("Last-Event-ID", lastEventId);
+        else if (catalogVersion >= 0) builder.header("Last-Event-ID", String.valueOf(catalogVersion));
+
+        Connection connection = new Connection();
+        current = connection;
+        lastActivity = System.currentTimeMillis();
+
+        OrderApiService.httpClient.sendAsync(builder.build(), info -> (info.statusCode() == 200)
+                        ? HttpResponse.BodySubscribers.fromLineSubscriber(connection)
+                        : HttpResponse.BodySubscribers.replacing(null))
+                .whenComplete((response, error) -> onClosed(connection, node,
+                        (response != null) ? response.statusCode() : -1, error));
+    }
+
+    private synchronized void onClosed(Connection connection, Backend node, int status, Throwable error) {
+        if (!running || connection != current) return;
+        current = null;
+        if (status == 404 || status == 405 || status == 501) {
+            System.err.println("Pas de flux de changements sur " + node.baseUrl + " : mise à jour par rechargement");
+            return;
+        }
+        if (error != null) {
+            System.err.println("Flux du catalogue interrompu : " + error.getMessage());
+        }
+        scheduleReconnect();
+    }
+
+    private void scheduleReconnect() {
+        long delay = Jitter.apply(reconnectMs);
+        reconnectMs = Math.min(reconnectMs * 2, MAX_RECONNECT_MS);
+        scheduler.schedule(this::connect, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void checkIdle() {
+        if (current == null || System.currentTimeMillis() - lastActivity < IDLE_TIMEOUT_MS) return;
+        System.err.println("Flux du catalogue muet depuis " + IDLE_TIMEOUT_MS / 1000 + " s, reconnexion");
+        current.cancel();
+        current = null;
+        scheduleReconnect();
+    }
+
+    private synchronized void onConnected() {
+        reconnectMs = MIN_RECONNECT_MS;
+    }
+
+    // ========================
+    //      ÉVÉNEMENTS
+    // ========================
+
+    private void dispatch(String event, String data, String id) {
+        CatalogClient catalog = CatalogClient.getInstance();
+        try {
+            switch (event) {
+                case "plat" -> {
+                    JsonObject json = JsonParser.parseString(data).getAsJsonObject();
+                    JsonElement disponible = json.get("disponible");
+                    JsonElement prix = json.get("prix");
+                    catalog.applyChange(json.get("idPlat").getAsInt(),
+                            (disponible != null && !disponible.isJsonNull()) ? disponible.getAsBoolean() : null,
+                            (prix != null && !prix.isJsonNull()) ? prix.getAsDouble() : null);
+                    if (id != null) catalog.advanceVersion(Long.parseLong(id));
+                }
+                case "catalogue", "reset" -> catalog.sync();
+                default -> { /* événement inconnu : ignoré */ }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Événement du catalogue illisible (" + event + ") : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Lecture d'une connexion, ligne par ligne, au format text/event-stream.
+     */
+    private final class Connection implements Flow.Subscriber<String> {
+        private Flow.Subscription subscription;
+        private boolean cancelled = false;
+        private String event = "message";
+        private final StringBuilder data = new StringBuilder();
+        // Pris en compte à la fin de l'événement : un événement coupé sera renvoyé à la reconnexion
+        private String id;
+
+        synchronized void cancel() {
+            cancelled = true;
+            if (subscription != null) subscription.cancel();
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            synchronized (this) {
+                this.subscription = subscription;
+                if (cancelled) {
+                    subscription.cancel();
+                    return;
+                }
+            }
+            onConnected();
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(String line) {
+            lastActivity = System.currentTimeMillis();
+            if (line.isEmpty()) {
+                // Ligne vide : fin de l'événement
+                if (data.length() > 0) dispatch(event, data.toString(), id);
+                if (id != null) lastEventId = id;
+                id = null;
+                event = "message";
+                data.setLength(0);
+                return;
+            }
+            if (line.startsWith(":")) return; // commentaire (maintien de la connexion)
+
+            int colon = line.indexOf(':');
+            String field = (colon < 0) ? line : line.substring(0, colon);
+            String value = (colon < 0) ? "" : line.substring(colon + 1);
+            if (value.startsWith(" ")) value = value.substring(1);
+
+            switch (field) {
+                case "event" -> event = value;
+                case "data" -> {
+                    if (data.length() > 0) data.append('\n');
+                    data.append(value);
+                }
+                case "id" -> id = value;
+                default -> { /* "retry" et champs inconnus : ignorés */ }
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            // Traité par onClosed (fin du future de la requête)
+        }
+
+        @Override
+        public void onComplete() {
+            // Idem
+        }
+    }
+}
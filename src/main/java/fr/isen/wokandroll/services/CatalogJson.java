@@ -0,0 +1,268 @@
+package fr.isen.wokandroll.services;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import fr.isen.wokandroll.models.Option;
+import fr.isen.wokandroll.services.CatalogClient.CategorieDto;
+import fr.isen.wokandroll.services.CatalogClient.ChangesDto;
+import fr.isen.wokandroll.services.CatalogClient.PlatDto;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Décodage JSON du catalogue écrit à la main, sans réflexion.
+ *
+ * Les tableaux sont lus en flux (JsonReader) directement dans des listes du modèle,
+ * sans tableau intermédiaire. Les TypeAdapter sont aussi enregistrés sur le Gson partagé,
+ * pour que Gson n'ait plus besoin d'accéder aux champs de Option par réflexion.
+ */
+public final class CatalogJson {
+
+    private CatalogJson() {}
+
+    public static final TypeAdapter<PlatDto> PLAT_ADAPTER = new TypeAdapter<>() {
+        @Override
+        public void write(JsonWriter out, PlatDto p) throws IOException {
+            if (p == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("idPlat").value(p.idPlat);
+            out.name("nom").value(p.nom);
+            out.name("description").value(p.description);
+            out.name("prix").value(p.prix);
+            out.name("disponible").value(p.disponible);
+            if (p.categorie != null) {
+                out.name("categorie").beginObject()
+                        .name("idCategorie").value(p.categorie.idCategorie)
+                        .name("nom").value(p.categorie.nom)
+                        .endObject();
+            }
+            out.endObject();
+        }
+
+        @Override
+        public PlatDto read(JsonReader in) throws IOException {
+            return readPlat(in);
+        }
+    };
+
+    public static final TypeAdapter<Option> OPTION_ADAPTER = new TypeAdapter<>() {
+        @Override
+        public void write(JsonWriter out, Option o) throws IOException {
+            if (o == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            out.name("idOption").value(o.getIdOption());
+            out.name("libelle").value(o.getLibelle());
+            out.name("type").value(o.getType());
+            out.name("prix").value(o.getPrix());
+            out.endObject();
+        }
+
+        @Override
+        public Option read(JsonReader in) throws IOException {
+            return readOption(in);
+        }
+    };
+
+    // ========================
+    //      TABLEAUX (flux)
+    // ========================
+
+    /**
+     * Lit un tableau JSON de plats ; renvoie une liste non modifiable (vide si null).
+     */
+    public static List<PlatDto> readPlats(Reader reader) throws IOException {
+        JsonReader in = new JsonReader(reader);
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return List.of();
+        }
+        return readPlatArray(in);
+    }
+
+    /**
+     * Lit un tableau JSON d'options ; renvoie une liste non modifiable (vide si null).
+     */
+    public static List<Option> readOptions(Reader reader) throws IOException {
+        JsonReader in = new JsonReader(reader);
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return List.of();
+        }
+        return readOptionArray(in);
+    }
+
+    /**
+     * Lit la réponse de /catalogue/changements :
+     * {"version":N, "rechargementComplet":false, "plats":[...], "supprimes":[id...],
+     *  "options":[{"idPlat":id, "options":[...]}...]}
+     */
+    static ChangesDto readChanges(Reader reader) throws IOException {
+        JsonReader in = new JsonReader(reader);
+        ChangesDto changes = new ChangesDto();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "version" -> changes.version = in.nextLong();
+                case "rechargementComplet" -> changes.rechargementComplet = in.nextBoolean();
+                case "plats" -> changes.plats = readPlatArray(in);
+                case "supprimes" -> {
+                    List<Integer> ids = new ArrayList<>();
+                    in.beginArray();
+                    while (in.hasNext()) ids.add(in.nextInt());
+                    in.endArray();
+                    changes.supprimes = ids;
+                }
+                case "options" -> changes.options = readOptionsByPlat(in);
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        return changes;
+    }
+
+    private static List<PlatDto> readPlatArray(JsonReader in) throws IOException {
+        List<PlatDto> plats = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            PlatDto p = readPlat(in);
+            if (p != null) plats.add(p);
+        }
+        in.endArray();
+        return Collections.unmodifiableList(plats);
+    }
+
+    private static List<Option> readOptionArray(JsonReader in) throws IOException {
+        List<Option> options = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            Option o = readOption(in);
+            if (o != null) options.add(o);
+        }
+        in.endArray();
+        return Collections.unmodifiableList(options);
+    }
+
+    private static Map<Integer, List<Option>> readOptionsByPlat(JsonReader in) throws IOException {
+        Map<Integer, List<Option>> byPlat = new LinkedHashMap<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            Integer idPlat = null;
+            List<Option> options = List.of();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "idPlat" -> idPlat = in.nextInt();
+                    case "options" -> options = readOptionArray(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            if (idPlat != null) byPlat.put(idPlat, options);
+        }
+        in.endArray();
+        return byPlat;
+    }
+
+    // ========================
+    //      OBJETS
+    // ========================
+
+    private static PlatDto readPlat(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        PlatDto p = new PlatDto();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "idPlat" -> p.idPlat = in.nextInt();
+                case "nom" -> p.nom = in.nextString();
+                case "description" -> p.description = in.nextString();
+                case "prix" -> p.prix = in.nextDouble();
+                case "disponible" -> p.disponible = in.nextBoolean();
+                case "categorie" -> p.categorie = readCategorie(in);
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        return p;
+    }
+
+    private static CategorieDto readCategorie(JsonReader in) throws IOException {
+        CategorieDto c = new CategorieDto();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "idCategorie" -> c.idCategorie = in.nextInt();
+                case "nom" -> c.nom = in.nextString();
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        return c;
+    }
+
+    private static Option readOption(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        int idOption = 0;
+        String libelle = null;
+        String type = null;
+        double prix = 0.0;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "idOption" -> idOption = in.nextInt();
+                case "libelle" -> libelle = in.nextString();
+                case "type" -> type = in.nextString();
+                case "prix" -> prix = in.nextDouble();
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        return new Option(idOption, libelle, type, prix);
+    }
+}
@@ -0,0 +1,183 @@
+package fr.isen.wokandroll.services;
+
+import fr.isen.wokandroll.models.Option;
+import fr.isen.wokandroll.services.CatalogClient.CategorieDto;
+import fr.isen.wokandroll.services.CatalogClient.PlatDto;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dernier catalogue valide, sauvegardé dans un fichier binaire compact et relu d'un bloc au démarrage.
+ * Lu en mémoire plutôt que mappé : un fichier mappé resterait verrouillé sous Windows et empêcherait
+ * le remplacement atomique de la sauvegarde suivante.
+ *
+ * Format (big-endian) :
+ *   int MAGIC, int FORMAT_VERSION, long savedAt, long version (version du catalogue, -1 si inconnue),
+ *   int nbCatégories, puis pour chacune : int id, int nbPlats, plats...
+ *   int nbListesOptions, puis pour chacune : int idPlat, int nbOptions, options...
+ * Chaînes : int longueur (-1 si null) + octets UTF-8.
+ */
+public final class CatalogSnapshot {
+
+    private static final int MAGIC = 0x574F4B53; // "WOKS"
+    // 2 : ajout de la version du catalogue (un snapshot en version 1 est ignoré)
+    private static final int FORMAT_VERSION = 2;
+    private static final String FILE_NAME = "catalog.snapshot";
+
+    final Map<Integer, List<PlatDto>> categories;
+    final Map<Integer, List<Option>> options;
+    final long version;
+
+    CatalogSnapshot(Map<Integer, List<PlatDto>> categories, Map<Integer, List<Option>> options, long version) {
+        this.categories = categories;
+        this.options = options;
+        this.version = version;
+    }
+
+    static Path defaultPath() throws IOException {
+        return AppFiles.dataDir().resolve(FILE_NAME);
+    }
+
+    // ========================
+    //      LECTURE
+    // ========================
+
+    /**
+     * Relit le snapshot ; null s'il est absent, d'un autre format ou corrompu.
+     */
+    static CatalogSnapshot read(Path file) {
+        if (!Files.exists(file)) return null;
+
+        try {
+            ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (buf.getInt() != MAGIC || buf.getInt() != FORMAT_VERSION) return null;
+            buf.getLong(); // savedAt
+            long version = buf.getLong();
+
+            Map<Integer, List<PlatDto>> categories = new LinkedHashMap<>();
+            int nbCategories = buf.getInt();
+            for (int c = 0; c < nbCategories; c++) {
+                int idCategorie = buf.getInt();
+                int nbPlats = buf.getInt();
+                List<PlatDto> plats = new ArrayList<>(nbPlats);
+                for (int i = 0; i < nbPlats; i++) {
+                    PlatDto p = new PlatDto();
+                    p.idPlat = buf.getInt();
+                    p.nom = readString(buf);
+                    p.description = readString(buf);
+                    p.prix = buf.getDouble();
+                    p.disponible = buf.get() != 0;
+                    p.categorie = new CategorieDto();
+                    p.categorie.idCategorie = buf.getInt();
+                    p.categorie.nom = readString(buf);
+                    plats.add(p);
+                }
+                categories.put(idCategorie, Collections.unmodifiableList(plats));
+            }
+
+            Map<Integer, List<Option>> options = new LinkedHashMap<>();
+            int nbLists = buf.getInt();
+            for (int l = 0; l < nbLists; l++) {
+                int idPlat = buf.getInt();
+                int nb = buf.getInt();
+                List<Option> list = new ArrayList<>(nb);
+                for (int i = 0; i < nb; i++) {
+                    int idOption = buf.getInt();
+                    String libelle = readString(buf);
+                    String type = readString(buf);
+                    double prix = buf.getDouble();
+                    list.add(new Option(idOption, libelle, type, prix));
+                }
+                options.put(idPlat, Collections.unmodifiableList(list));
+            }
+            return new CatalogSnapshot(categories, options, version);
+
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException e) {
+            System.err.println("Snapshot du catalogue illisible, ignoré : " + e);
+            return null;
+        }
+    }
+
+    private static String readString(ByteBuffer buf) {
+        int len = buf.getInt();
+        if (len < 0) return null;
+        byte[] bytes = new byte[len];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // ========================
+    //      ÉCRITURE
+    // ========================
+
+    /**
+     * Écrit dans un fichier temporaire, sur disque (fsync), puis remplace l'ancien snapshot
+     * (jamais de fichier à moitié écrit, même après une coupure de courant).
+     */
+    void write(Path file) throws IOException {
+        Path tmp = file.resolveSibling(FILE_NAME + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(System.currentTimeMillis());
+            out.writeLong(version);
+
+            out.writeInt(categories.size());
+            for (Map.Entry<Integer, List<PlatDto>> e : categories.entrySet()) {
+                out.writeInt(e.getKey());
+                out.writeInt(e.getValue().size());
+                for (PlatDto p : e.getValue()) {
+                    out.writeInt(p.idPlat);
+                    writeString(out, p.nom);
+                    writeString(out, p.description);
+                    out.writeDouble(p.prix);
+                    out.writeBoolean(p.disponible);
+                    out.writeInt(p.categorie != null ? p.categorie.idCategorie : e.getKey());
+                    writeString(out, p.categorie != null ? p.categorie.nom : null);
+                }
+            }
+
+            out.writeInt(options.size());
+            for (Map.Entry<Integer, List<Option>> e : options.entrySet()) {
+                out.writeInt(e.getKey());
+                out.writeInt(e.getValue().size());
+                for (Option o : e.getValue()) {
+                    out.writeInt(o.getIdOption());
+                    writeString(out, o.getLibelle());
+                    writeString(out, o.getType());
+                    out.writeDouble(o.getPrix());
+                }
+            }
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
@@ -0,0 +1,70 @@
+package fr.isen.wokandroll.services;
+
+/**
+ * Disjoncteur devant le backend : après FAILURE_THRESHOLD échecs consécutifs, les appels échouent
+ * immédiatement (sans réseau) pendant openMs ; ensuite une seule requête d'essai est autorisée,
+ * qui referme le circuit si elle réussit ou le rouvre sinon.
+ */
+class CircuitBreaker {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openMs;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long openedAt;
+    private boolean probeInFlight = false;
+
+    CircuitBreaker(int failureThreshold, long openMs) {
+        this.failureThreshold = failureThreshold;
+        this.openMs = openMs;
+    }
+
+    /**
+     * true si l'appel peut partir ; false s'il doit échouer tout de suite (circuit ouvert).
+     */
+    synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.currentTimeMillis() - openedAt < openMs) return false;
+                state = State.HALF_OPEN;
+                probeInFlight = true;
+                return true;
+            default: // HALF_OPEN : une seule requête d'essai à la fois
+                if (probeInFlight) return false;
+                probeInFlight = true;
+                return true;
+        }
+    }
+
+    synchronized void onSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        probeInFlight = false;
+    }
+
+    synchronized void onFailure() {
+        consecutiveFailures++;
+        probeInFlight = false;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) {
+                System.err.println("Backend indisponible : circuit ouvert pendant " + openMs + " ms");
+            }
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+
+    /** Appel abandonné (interruption) : ni succès ni échec, mais libère la requête d'essai. */
+    synchronized void onCancelled() {
+        probeInFlight = false;
+    }
+
+    synchronized State state() {
+        return state;
+    }
+}
@@ -0,0 +1,88 @@
+package fr.isen.wokandroll.services;
+
+import java.io.IOException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Mémorise, par URL, les validateurs HTTP (ETag / Last-Modified) et l'objet déjà désérialisé.
+ * Sur un 304 Not Modified, on renvoie directement l'objet : ni transfert, ni parsing Gson.
+ * Borné en nombre d'URL (LRU) : une URL évincée repart simplement sur un GET complet.
+ */
+class ConditionalCache {
+
+    private static final class Entry {
+        final String etag;
+        final String lastModified;
+        final Object value;
+
+        Entry(String etag, String lastModified, Object value) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.value = value;
+        }
+    }
+
+    /** 304 reçu alors que la version de l'URL a été évincée entre-temps : refaire un GET complet. */
+    static final class EvictedException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        EvictedException(String url) {
+            super("304 reçu sans version en cache : " + url);
+        }
+    }
+
+    private final int maxEntries;
+
+    // accessOrder = true : l'URL la moins récemment utilisée est évincée en premier
+    private final LinkedHashMap<String, Entry> entries;
+
+    ConditionalCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > ConditionalCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Ajoute If-None-Match / If-Modified-Since si on a déjà une version de cette URL.
+     */
+    void addValidators(String url, HttpRequest.Builder builder) {
+        Entry entry = get(url);
+        if (entry == null) return;
+        if (entry.etag != null) builder.header("If-None-Match", entry.etag);
+        if (entry.lastModified != null) builder.header("If-Modified-Since", entry.lastModified);
+    }
+
+    /**
+     * Renvoie l'objet correspondant à la réponse : celui du cache sur un 304 (EvictedException s'il n'y est plus),
+     * sinon le corps parsé, toujours mémorisé (avec les validateurs reçus, éventuellement aucun).
+     */
+    @SuppressWarnings("unchecked")
+    <T> T resolve(String url, HttpResponse<String> response, Function<String, T> parser) throws IOException {
+        if (response.statusCode() == 304) {
+            Entry entry = get(url);
+            if (entry == null) throw new EvictedException(url);
+            return (T) entry.value;
+        }
+
+        T value = parser.apply(response.body());
+
+        String etag = response.headers().firstValue("ETag").orElse(null);
+        String lastModified = response.headers().firstValue("Last-Modified").orElse(null);
+        synchronized (this) {
+            entries.put(url, new Entry(etag, lastModified, value));
+        }
+        return value;
+    }
+
+    private synchronized Entry get(String url) {
+        return entries.get(url);
+    }
+}
@@ -0,0 +1,132 @@
+package fr.isen.wokandroll.services;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Règles et mesures propres à chaque famille d'endpoints (un gabarit d'URL par valeur).
+ *
+ * Chaque appel est enregistré dans un histogramme de latence. Le délai maximal d'une requête suit
+ * le p99 mesuré (TIMEOUT_FACTOR × p99, borné par minTimeout / maxTimeout) ; tant qu'il y a trop peu
+ * de mesures, on applique maxTimeout.
+ *
+ * Une lecture couverte (hedging) envoie une seconde requête identique si la première n'a pas répondu
+ * après le p95 récent ; la première réponse gagne. Jamais pour les écritures, ni pour les statistiques
+ * (requêtes lourdes côté backend).
+ */
+enum EndpointPolicy {
+    CATALOGUE("/categories/", "/categories/{id}/plats", Duration.ofMillis(500), Duration.ofSeconds(5), true),
+    OPTIONS("/plats/", "/plats/{id}/options", Duration.ofMillis(500), Duration.ofSeconds(5), true),
+    CHANGEMENTS("/catalogue/changements", "/catalogue/changements", Duration.ofMillis(500), Duration.ofSeconds(5), true),
+    STATS("/stats/", "/stats/*", Duration.ofSeconds(1), Duration.ofSeconds(10), false),
+    LIGNES("/lignes", "/lignes", Duration.ofSeconds(1), Duration.ofSeconds(10), false),
+    COMMANDES_BATCH("/commandes/batch", "/commandes/batch", Duration.ofSeconds(2), Duration.ofSeconds(15), false),
+    COMMANDES("/commandes", "/commandes", Duration.ofSeconds(1), Duration.ofSeconds(10), false),
+    AUTRE("", "(autre)", Duration.ofSeconds(1), Duration.ofSeconds(10), false);
+
+    private static final double TIMEOUT_FACTOR = 3.0;
+    // Fenêtre des mesures récentes : entre WINDOW_MS et 2 × WINDOW_MS d'historique
+    private static final long WINDOW_MS = 5 * 60_000;
+    private static final int MIN_SAMPLES_FOR_TIMEOUT = 50;
+    private static final int MIN_SAMPLES_FOR_HEDGE = 20;
+    private static final long MIN_HEDGE_DELAY_MS = 20;
+    // Les percentiles récents sont recalculés au plus une fois par seconde
+    private static final long REFRESH_MS = 1_000;
+
+    private final String prefix;
+    final String template;
+    final Duration minTimeout;
+    final Duration maxTimeout;
+    final boolean hedge;
+
+    // Depuis le démarrage (métriques) et fenêtre récente (délais adaptatifs)
+    final LatencyHistogram total = new LatencyHistogram();
+    private volatile LatencyHistogram current = new LatencyHistogram();
+    private volatile LatencyHistogram previous = new LatencyHistogram();
+    private final AtomicLong windowStart = new AtomicLong(System.currentTimeMillis());
+    final LongAdder errors = new LongAdder();
+
+    private volatile long computedAt = 0;
+    private volatile Duration timeout;
+    private volatile long hedgeDelayMs = -1;
+
+    EndpointPolicy(String prefix, String template, Duration minTimeout, Duration maxTimeout, boolean hedge) {
+        this.prefix = prefix;
+        this.template = template;
+        this.minTimeout = minTimeout;
+        this.maxTimeout = maxTimeout;
+        this.hedge = hedge;
+        this.timeout = maxTimeout;
+    }
+
+    static EndpointPolicy of(String endpoint) {
+        for (EndpointPolicy policy : values()) {
+            if (endpoint.startsWith(policy.prefix)) return policy;
+        }
+        return AUTRE;
+    }
+
+    // ========================
+    //      MESURES
+    // ========================
+
+    /** Durée d'un appel qui a reçu une réponse, ou qui a expiré (la durée mesurée fait alors monter le p99). */
+    void record(long elapsedNanos) {
+        long now = System.currentTimeMillis();
+        long start = windowStart.get();
+        if (now - start >= WINDOW_MS && windowStart.compareAndSet(start, now)) {
+            previous = current;
+            current = new LatencyHistogram();
+        }
+        long micros = elapsedNanos / 1_000;
+        current.record(micros);
+        total.record(micros);
+    }
+
+    LatencyHistogram.Snapshot recent() {
+        return previous.snapshot().merge(current.snapshot());
+    }
+
+    // ========================
+    //   DÉLAIS ADAPTATIFS
+    // ========================
+
+    /** Délai maximal de la prochaine requête. */
+    Duration timeout() {
+        refreshIfNeeded();
+        return timeout;
+    }
+
+    /**
+     * Délai avant la requête de couverture, ou -1 si on ne couvre pas cet appel.
+     */
+    long hedgeDelayMs() {
+        if (!hedge) return -1;
+        refreshIfNeeded();
+        return hedgeDelayMs;
+    }
+
+    private void refreshIfNeeded() {
+        long now = System.currentTimeMillis();
+        if (now - computedAt < REFRESH_MS) return;
+        computedAt = now;
+
+        LatencyHistogram.Snapshot recent = recent();
+
+        if (recent.count < MIN_SAMPLES_FOR_TIMEOUT) {
+            timeout = maxTimeout;
+        } else {
+            long adaptiveMs = (long) (recent.percentile(0.99) / 1_000 * TIMEOUT_FACTOR);
+            adaptiveMs = Math.max(minTimeout.toMillis(), Math.min(maxTimeout.toMillis(), adaptiveMs));
+            timeout = Duration.ofMillis(adaptiveMs);
+        }
+
+        if (hedge && recent.count >= MIN_SAMPLES_FOR_HEDGE) {
+            long p95Ms = recent.percentile(0.95) / 1_000;
+            hedgeDelayMs = (p95Ms < timeout.toMillis()) ? Math.max(p95Ms, MIN_HEDGE_DELAY_MS) : -1;
+        } else {
+            hedgeDelayMs = -1;
+        }
+    }
+}
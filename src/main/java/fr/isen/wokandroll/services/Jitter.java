@@ -0,0 +1,16 @@
+package fr.isen.wokandroll.services;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Aléa appliqué aux délais de relance (statistiques, rejeu des commandes, reconnexion au flux) :
+ * ±20 % pour que toutes les bornes, démarrées ou coupées ensemble, ne rappellent pas le backend au même instant.
+ */
+final class Jitter {
+
+    private Jitter() {}
+
+    static long apply(long delayMs) {
+        return (long) (delayMs * ThreadLocalRandom.current().nextDouble(0.8, 1.2));
+    }
+}
@@ -0,0 +1,100 @@
+package fr.isen.wokandroll.services;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogramme de durées sans verrou, à seaux log-linéaires (principe de HdrHistogram) :
+ * valeurs en microsecondes, 16 seaux par puissance de 2, soit une précision d'environ 6 %
+ * de 1 µs à ~67 s. Enregistrer une valeur = un incrément atomique, sans allocation.
+ */
+class LatencyHistogram {
+
+    // Valeurs < 32 µs : un seau par microseconde ; au-delà, SUB_BUCKETS seaux par puissance de 2
+    private static final int LINEAR_LIMIT = 32;
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int MAX_MSB = 25; // 2^26 µs ≈ 67 s, les valeurs au-delà vont dans le dernier seau
+    private static final int BUCKETS = LINEAR_LIMIT + (MAX_MSB - 4) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sumMicros = new LongAdder();
+    private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0);
+
+    void record(long micros) {
+        if (micros < 0) micros = 0;
+        counts.incrementAndGet(indexOf(micros));
+        total.increment();
+        sumMicros.add(micros);
+        maxMicros.accumulate(micros);
+    }
+
+    static int indexOf(long micros) {
+        if (micros < LINEAR_LIMIT) return (int) micros;
+        int msb = Math.min(63 - Long.numberOfLeadingZeros(micros), MAX_MSB);
+        int shift = msb - SUB_BITS;
+        int sub = (int) Math.min((micros >>> shift) - SUB_BUCKETS, SUB_BUCKETS - 1);
+        return LINEAR_LIMIT + (msb - 5) * SUB_BUCKETS + sub;
+    }
+
+    /** Plus grande valeur (µs) rangée dans ce seau. */
+    static long upperBoundOf(int index) {
+        if (index < LINEAR_LIMIT) return index;
+        int msb = (index - LINEAR_LIMIT) / SUB_BUCKETS + 5;
+        int sub = (index - LINEAR_LIMIT) % SUB_BUCKETS;
+        int shift = msb - SUB_BITS;
+        return ((long) (SUB_BUCKETS + sub + 1) << shift) - 1;
+    }
+
+    /**
+     * Copie des compteurs (cohérente à quelques enregistrements concurrents près).
+     */
+    Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) copy[i] = counts.get(i);
+        return new Snapshot(copy, sumMicros.sum(), maxMicros.get());
+    }
+
+    /** Photo figée d'un ou plusieurs histogrammes. */
+    static final class Snapshot {
+        private final long[] counts;
+        final long count;
+        final long sumMicros;
+        final long maxMicros;
+
+        private Snapshot(long[] counts, long sumMicros, long maxMicros) {
+            long n = 0;
+            for (long c : counts) n += c;
+            this.counts = counts;
+            this.count = n;
+            this.sumMicros = sumMicros;
+            this.maxMicros = maxMicros;
+        }
+
+        Snapshot merge(Snapshot other) {
+            long[] merged = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) merged[i] = counts[i] + other.counts[i];
+            return new Snapshot(merged, sumMicros + other.sumMicros, Math.max(maxMicros, other.maxMicros));
+        }
+
+        /**
+         * Percentile (0..1) en µs, borne haute du seau (jamais sous-estimé) ; 0 si vide.
+         */
+        long percentile(double p) {
+            if (count == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(p * count));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) return Math.min(upperBoundOf(i), maxMicros);
+            }
+            return maxMicros;
+        }
+
+        long meanMicros() {
+            return (count == 0) ? 0 : sumMicros / count;
+        }
+    }
+}
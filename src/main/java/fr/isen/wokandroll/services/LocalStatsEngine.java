@@ -0,0 +1,239 @@
+package fr.isen.wokandroll.services;
+
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Statistiques de cette borne, calculées au fil des commandes envoyées (sans appel au backend).
+ *
+ * Nombre de commandes et panier moyen : compteurs cumulés.
+ * Plats les plus vendus : algorithme Space-Saving (Metwally et al.) sur TOPK_CAPACITY compteurs,
+ * mémoire bornée quel que soit le nombre de plats ; un plat réellement vendu plus de N / TOPK_CAPACITY
+ * fois sur N ventes est toujours présent.
+ *
+ * Chaque lecture renvoie un instantané déjà calculé (O(1)) ; l'état est sauvegardé dans le dossier de la borne,
+ * en arrière-plan et regroupé (SAVE_DELAY_MS) pour ne pas ralentir l'envoi des commandes.
+ */
+public class LocalStatsEngine {
+
+    private static LocalStatsEngine instance;
+
+    private static final String FILE_NAME = "local-stats.json";
+    private static final int TOPK_CAPACITY = 50;
+    // Clés des dernières commandes comptées : un renvoi (rejeu après redémarrage) n'est pas compté deux fois
+    private static final int RECENT_KEYS = 256;
+    // Délai de regroupement des sauvegardes
+    private static final long SAVE_DELAY_MS = 2_000;
+
+    private final Path file;
+    private final Map<Integer, Counter> counters = new HashMap<>();
+    private final LinkedHashSet<String> recentKeys = new LinkedHashSet<>();
+    private long nombreCommandes;
+    private double totalMontant;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    private final ScheduledExecutorService saver = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "local-stats-save");
+        t.setDaemon(true);
+        return t;
+    });
+    private ScheduledFuture<?> pendingSave;
+
+    public static synchronized LocalStatsEngine getInstance() throws IOException {
+        if (instance == null) {
+            instance = new LocalStatsEngine(AppFiles.dataDir().resolve(FILE_NAME));
+        }
+        return instance;
+    }
+
+    LocalStatsEngine(Path file) {
+        this.file = file;
+        load();
+    }
+
+    /** Dernier état calculé : aucune attente, utilisable sur le thread JavaFX. */
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    // ========================
+    //      ALIMENTATION
+    // ========================
+
+    /**
+     * Compte une commande acceptée par le backend (ignorée si sa clé a déjà été comptée).
+     */
+    public synchronized void record(PendingOrder order) {
+        if (!recentKeys.add(order.getIdempotencyKey())) return;
+        if (recentKeys.size() > RECENT_KEYS) {
+            recentKeys.remove(recentKeys.iterator().next());
+        }
+
+        nombreCommandes++;
+        totalMontant += order.getMontantTotal();
+        for (PendingOrder.Line line : order.getLignes()) {
+            offer(line.getIdPlat(), line.getNom(), line.getQuantite());
+        }
+
+        snapshot = buildSnapshot();
+        scheduleSave();
+    }
+
+    /**
+     * Space-Saving : un plat suivi est incrémenté ; sinon, s'il reste de la place il est ajouté,
+     * sinon il remplace le plat le moins vendu et hérite de son compteur (l'erreur maximale).
+     */
+    private void offer(int idPlat, String nom, int quantite) {
+        Counter counter = counters.get(idPlat);
+        if (counter != null) {
+            counter.count += quantite;
+            if (nom != null) counter.nom = nom;
+            return;
+        }
+
+        if (counters.size() < TOPK_CAPACITY) {
+            counters.put(idPlat, new Counter(idPlat, nom, quantite, 0));
+            return;
+        }
+
+        Counter min = counters.values().stream().min(Comparator.comparingLong(c -> c.count)).orElseThrow();
+        counters.remove(min.idPlat);
+        counters.put(idPlat, new Counter(idPlat, nom, min.count + quantite, min.count));
+    }
+
+    private Snapshot buildSnapshot() {
+        List<TopDish> top = new ArrayList<>(counters.size());
+        for (Counter c : counters.values()) {
+            top.add(new TopDish(c.idPlat, c.nom, c.count, c.error));
+        }
+        top.sort(Comparator.comparingLong((TopDish d) -> d.quantite).reversed());
+        double moyen = (nombreCommandes > 0) ? totalMontant / nombreCommandes : 0.0;
+        return new Snapshot(nombreCommandes, moyen, List.copyOf(top));
+    }
+
+    // ========================
+    //      PERSISTANCE
+    // ========================
+
+    private void load() {
+        if (!Files.exists(file)) return;
+        try {
+            State state = OrderApiService.gson.fromJson(Files.readString(file, StandardCharsets.UTF_8), State.class);
+            if (state == null) return;
+            nombreCommandes = state.nombreCommandes;
+            totalMontant = state.totalMontant;
+            if (state.counters != null) {
+                for (Counter c : state.counters) counters.put(c.idPlat, c);
+            }
+            if (state.recentKeys != null) recentKeys.addAll(state.recentKeys);
+            snapshot = buildSnapshot();
+        } catch (IOException | JsonParseException e) {
+            System.err.println("Statistiques locales illisibles, remises à zéro : " + e);
+        }
+    }
+
+    private synchronized void scheduleSave() {
+        if (pendingSave != null && !pendingSave.isDone()) return;
+        pendingSave = saver.schedule(this::save, SAVE_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized String serializeState() {
+        State state = new State();
+        state.nombreCommandes = nombreCommandes;
+        state.totalMontant = totalMontant;
+        state.counters = new ArrayList<>(counters.values());
+        state.recentKeys = new ArrayList<>(recentKeys);
+        return OrderApiService.gson.toJson(state);
+    }
+
+    // Sur le thread de sauvegarde : seule la copie de l'état se fait sous le verrou
+    private void save() {
+        ByteBuffer buffer = ByteBuffer.wrap(serializeState().getBytes(StandardCharsets.UTF_8));
+        Path tmp = file.resolveSibling(FILE_NAME + ".tmp");
+        try {
+            try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) out.write(buffer);
+                // Sur disque avant le renommage : jamais de fichier vide après une coupure
+                out.force(true);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Impossible de sauvegarder les statistiques locales : " + e.getMessage());
+        }
+    }
+
+    // ==============================
+    //     DONNÉES
+    // ==============================
+
+    public static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(0, 0.0, List.of());
+
+        public final long nombreCommandes;
+        public final double panierMoyen;
+        /** Plats triés du plus vendu au moins vendu. */
+        public final List<TopDish> topPlats;
+
+        Snapshot(long nombreCommandes, double panierMoyen, List<TopDish> topPlats) {
+            this.nombreCommandes = nombreCommandes;
+            this.panierMoyen = panierMoyen;
+            this.topPlats = topPlats;
+        }
+    }
+
+    public static final class TopDish {
+        public final int idPlat;
+        public final String nom;
+        /** Quantité estimée (jamais sous-estimée). */
+        public final long quantite;
+        /** Surestimation maximale possible de la quantité. */
+        public final long erreur;
+
+        TopDish(int idPlat, String nom, long quantite, long erreur) {
+            this.idPlat = idPlat;
+            this.nom = nom;
+            this.quantite = quantite;
+            this.erreur = erreur;
+        }
+    }
+
+    private static class Counter {
+        private int idPlat;
+        private String nom;
+        private long count;
+        private long error;
+
+        Counter(int idPlat, String nom, long count, long error) {
+            this.idPlat = idPlat;
+            this.nom = nom;
+            this.count = count;
+            this.error = error;
+        }
+    }
+
+    private static class State {
+        private long nombreCommandes;
+        private double totalMontant;
+        private List<Counter> counters;
+        private List<String> recentKeys;
+    }
+}
@@ -0,0 +1,81 @@
+package fr.isen.wokandroll.services;
+
+import fr.isen.wokandroll.models.Option;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache des options par idPlat, borné en taille (LRU) avec une durée de validité.
+ * Une entrée expirée reste lisible : elle est affichée pendant qu'on la rafraîchit.
+ */
+class OptionsCache {
+
+    private static final class Entry {
+        final List<Option> options;
+        final long loadedAt;
+
+        Entry(List<Option> options, long loadedAt) {
+            this.options = options;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private final int maxEntries;
+    private final long ttlMs;
+
+    // accessOrder = true : l'entrée la moins récemment lue est évincée en premier
+    private final LinkedHashMap<Integer, Entry> entries;
+
+    OptionsCache(int maxEntries, long ttlMs) {
+        this.maxEntries = maxEntries;
+        this.ttlMs = ttlMs;
+        this.entries = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+                return size() > OptionsCache.this.maxEntries;
+            }
+        };
+    }
+
+    /** Options connues pour ce plat (même expirées), ou null. */
+    synchronized List<Option> get(int idPlat) {
+        Entry entry = entries.get(idPlat);
+        return (entry != null) ? entry.options : null;
+    }
+
+    synchronized boolean isFresh(int idPlat) {
+        Entry entry = entries.get(idPlat);
+        return entry != null && System.currentTimeMillis() - entry.loadedAt < ttlMs;
+    }
+
+    /** Enregistre une réponse réseau ; renvoie true si le contenu a changé. */
+    synchronized boolean put(int idPlat, List<Option> options) {
+        Entry previous = entries.put(idPlat, new Entry(options, System.currentTimeMillis()));
+        return previous == null || previous.options != options;
+    }
+
+    /** Ajoute une entrée relue du snapshot : déjà expirée, elle sera rafraîchie au premier usage. */
+    synchronized void putStale(int idPlat, List<Option> options) {
+        entries.putIfAbsent(idPlat, new Entry(options, 0));
+    }
+
+    synchronized void remove(int idPlat) {
+        entries.remove(idPlat);
+    }
+
+    /**
+     * Toutes les entrées redeviennent valides : le backend vient de confirmer qu'elles n'ont pas changé.
+     */
+    synchronized void confirmAll() {
+        long now = System.currentTimeMillis();
+        entries.replaceAll((id, entry) -> new Entry(entry.options, now));
+    }
+
+    synchronized Map<Integer, List<Option>> copy() {
+        Map<Integer, List<Option>> copy = new LinkedHashMap<>();
+        entries.forEach((id, entry) -> copy.put(id, entry.options));
+        return copy;
+    }
+}
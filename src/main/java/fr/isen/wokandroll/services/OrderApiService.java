@@ -7,61 +7,100 @@ import fr.isen.wokandroll.models.Cart;
 import fr.isen.wokandroll.models.CartItem;
 import fr.isen.wokandroll.models.Option;
 import fr.isen.wokandroll.models.Product;
+import fr.isen.wokandroll.services.BackendRegistry.Backend;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Type;
-import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public class OrderApiService {
 
-    private static final String BASE_URL = "http://localhost:7001";
-    private static final HttpClient httpClient = HttpClient.newHttpClient();
-    private static final Gson gson = new GsonBuilder().create();
+    // Délai d'établissement de connexion ; le délai de chaque requête dépend de l'endpoint (EndpointPolicy)
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(2);
+    // Partagés avec CatalogClient : un seul pool de connexions (keep-alive) et un seul Gson
+    static final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(CONNECT_TIMEOUT)
+            .build();
+    // Catalogue et options : TypeAdapter écrits à la main (CatalogJson), pas de réflexion
+    static final Gson gson = new GsonBuilder()
+            .registerTypeAdapter(CatalogClient.PlatDto.class, CatalogJson.PLAT_ADAPTER)
+            .registerTypeAdapter(Option.class, CatalogJson.OPTION_ADAPTER)
+            .create();
+    // Validateurs HTTP + objets déjà parsés des GET (partagé avec CatalogClient) ; de quoi garder
+    // les catégories, les statistiques et toutes les listes d'options du cache de CatalogClient
+    private static final int VALIDATORS_MAX_ENTRIES = 1024;
+    static final ConditionalCache validators = new ConditionalCache(VALIDATORS_MAX_ENTRIES);
+
+    // Nombre maximal de lignes envoyées en parallèle quand l'endpoint groupé est absent
+    private static final int MAX_PARALLEL_LINES = 4;
+    static final String IDEMPOTENCY_HEADER = "Idempotency-Key";
+    // Passe à false dès que le backend répond que /commandes/batch n'existe pas
+    private static volatile boolean batchSupported = true;
+    private static final LongAdder hedgedRequests = new LongAdder();
+    // GET en cours par endpoint (regroupement des requêtes identiques simultanées)
+    private static final Map<String, CompletableFuture<?>> inFlightGets = new ConcurrentHashMap<>();
+    private static final LongAdder coalescedGets = new LongAdder();
 
     // ========================
     //      STATISTIQUES (GET)
     // ========================
 
-    public long getNombreCommandes() {
-        try {
-            Map<String, Double> map = sendRequest("/stats/commandes/count", "GET", null, new TypeToken<Map<String, Double>>(){}.getType());
-            return map != null ? map.get("nombre_commandes").longValue() : 0;
-        } catch (Exception e) {
-            e.printStackTrace();
-            return 0;
-        }
+    private static final Type STAT_MAP_TYPE = new TypeToken<Map<String, Double>>(){}.getType();
+    private static final Type TOP_PLATS_TYPE = new TypeToken<ArrayList<PlatBackendDto>>(){}.getType();
+
+    // Une erreur fait échouer le future : StatsService décide du repli (dernières valeurs reçues)
+
+    public static CompletableFuture<Long> fetchNombreCommandes() {
+        return getJsonAsync("/stats/commandes/count", json -> statValue(json, "nombre_commandes"))
+                .thenApply(Double::longValue);
     }
 
-    public double getPanierMoyen() {
-        try {
-            Map<String, Double> map = sendRequest("/stats/panier-moyen", "GET", null, new TypeToken<Map<String, Double>>(){}.getType());
-            return map != null ? map.get("panier_moyen") : 0.0;
-        } catch (Exception e) {
-            e.printStackTrace();
-            return 0.0;
-        }
+    public static CompletableFuture<Double> fetchPanierMoyen() {
+        return getJsonAsync("/stats/panier-moyen", json -> statValue(json, "panier_moyen"));
     }
 
-    public List<Product> getTopPlats() {
-        try {
-            List<PlatBackendDto> rawList = sendRequest("/stats/top-plats?limit=5", "GET", null, new TypeToken<ArrayList<PlatBackendDto>>(){}.getType());
-            if (rawList == null) return new ArrayList<>();
+    public static CompletableFuture<List<Product>> fetchTopPlats() {
+        return getJsonAsync("/stats/top-plats?limit=5", json -> {
+            List<PlatBackendDto> rawList = parseBody(json, TOP_PLATS_TYPE);
+            if (rawList == null) return List.<Product>of();
 
             return rawList.stream().map(dto -> {
                 String catName = (dto.categorie != null && dto.categorie.nom != null) ? dto.categorie.nom : "Plat";
                 return new Product(dto.idPlat, dto.nom, dto.description, dto.prix, "fr/isen/wokandroll/images/logo.jpg", catName);
-            }).collect(Collectors.toList());
-        } catch (Exception e) {
-            e.printStackTrace();
-            return new ArrayList<>();
+            }).collect(Collectors.toUnmodifiableList());
+        });
+    }
+
+    private static double statValue(String json, String key) {
+        Map<String, Double> map = parseBody(json, STAT_MAP_TYPE);
+        Double value = (map != null) ? map.get(key) : null;
+        if (value == null) {
+            throw new UncheckedIOException(new IOException("Champ \"" + key + "\" absent de la réponse"));
         }
+        return value;
     }
 
     // ========================
@@ -69,35 +108,115 @@ public class OrderApiService {
     // ========================
 
     public static int createCommande(double montantTotal) throws IOException, InterruptedException {
+        return createCommande(montantTotal, null);
+    }
+
+    private static int createCommande(double montantTotal, String idempotencyKey) throws IOException, InterruptedException {
         CommandeRequest requestBody = new CommandeRequest();
         requestBody.setMontantTotal(montantTotal);
 
-        CommandeResponse response = sendRequest("/commandes", "POST", requestBody, CommandeResponse.class);
+        CommandeResponse response = sendRequest("/commandes", "POST", requestBody, CommandeResponse.class, idempotencyKey);
         return response.getIdCommande();
     }
 
     public static void createLigneCommande(int idCommande, CartItem item) throws IOException, InterruptedException {
-        LigneCommandeRequest body = new LigneCommandeRequest();
-        body.setCommande(new CommandeRef(idCommande));
-        body.setPlat(new PlatRef(item.getProduct().getId()));
-        body.setQuantite(item.getQuantity());
-        body.setPrixUnitaire(item.getProduct().getPrice());
+        sendRequest("/lignes", "POST", toLigneRequest(new CommandeRef(idCommande), PendingOrder.Line.of(item)), null, null);
+    }
 
-        if (item.getOptions() != null && !item.getOptions().isEmpty()) {
-            body.setOptions(item.getOptions());
-        }
+    public static int createCommandeWithLinesFromCart(Cart cart) throws IOException, InterruptedException {
+        return submitOrder(PendingOrder.fromCart(cart, 0));
+    }
 
-        sendRequest("/lignes", "POST", body, null);
+    /**
+     * Envoie la commande et toutes ses lignes.
+     * Essaie d'abord /commandes/batch (un seul aller-retour) ; si le backend ne le connaît pas,
+     * crée la commande puis envoie les lignes en parallèle (au plus MAX_PARALLEL_LINES à la fois).
+     * Chaque requête porte une clé d'idempotence dérivée de la commande : un renvoi ne crée pas de doublon.
+     * Une fois acceptée, la commande alimente les statistiques locales de la borne.
+     */
+    public static int submitOrder(PendingOrder order) throws IOException, InterruptedException {
+        int idCommande = sendOrder(order);
+        try {
+            LocalStatsEngine.getInstance().record(order);
+        } catch (IOException e) {
+            // La commande est bien envoyée : une statistique manquée ne doit pas provoquer de renvoi
+            System.err.println("Statistiques locales indisponibles : " + e.getMessage());
+        }
+        return idCommande;
     }
 
-    public static int createCommandeWithLinesFromCart(Cart cart) throws IOException, InterruptedException {
-        int idCommande = createCommande(cart.getTotal());
-        for (CartItem item : cart.getItems()) {
-            createLigneCommande(idCommande, item);
+    private static int sendOrder(PendingOrder order) throws IOException, InterruptedException {
+        if (batchSupported) {
+            try {
+                return createCommandeBatch(order);
+            } catch (BatchUnsupportedException e) {
+                batchSupported = false;
+                System.err.println("Endpoint /commandes/batch absent, envoi ligne par ligne.");
+            }
         }
+
+        String key = order.getIdempotencyKey();
+        int idCommande = createCommande(order.getMontantTotal(), key);
+        createLignesConcurrently(idCommande, order.getLignes(), key);
         return idCommande;
     }
 
+    private static int createCommandeBatch(PendingOrder order) throws IOException, InterruptedException {
+        BatchCommandeRequest body = new BatchCommandeRequest();
+        body.setMontantTotal(order.getMontantTotal());
+        for (PendingOrder.Line line : order.getLignes()) {
+            body.addLigne(toLigneRequest(null, line));
+        }
+
+        HttpResponse<String> response = sendWrite("/commandes/batch", body, order.getIdempotencyKey());
+
+        int status = response.statusCode();
+        if (status == 404 || status == 405 || status == 501) {
+            throw new BatchUnsupportedException();
+        }
+        CommandeResponse commande = parseResponse(response, CommandeResponse.class);
+        if (commande == null) {
+            throw new IOException("Réponse vide de /commandes/batch");
+        }
+        return commande.getIdCommande();
+    }
+
+    private static void createLignesConcurrently(int idCommande, List<PendingOrder.Line> lines, String idempotencyKey) throws IOException, InterruptedException {
+        Semaphore permits = new Semaphore(MAX_PARALLEL_LINES);
+        List<CompletableFuture<HttpResponse<String>>> pending = new ArrayList<>();
+        CommandeRef commande = new CommandeRef(idCommande);
+
+        for (int i = 0; i < lines.size(); i++) {
+            permits.acquire();
+            String lineKey = (idempotencyKey != null) ? idempotencyKey + "/" + i : null;
+            pending.add(sendWriteAsync("/lignes", toLigneRequest(commande, lines.get(i)), lineKey)
+                    .whenComplete((r, e) -> permits.release()));
+        }
+
+        try {
+            for (CompletableFuture<HttpResponse<String>> future : pending) {
+                parseResponse(future.get(), null);
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            throw new IOException("Échec d'envoi d'une ligne de commande", cause);
+        }
+    }
+
+    private static LigneCommandeRequest toLigneRequest(CommandeRef commande, PendingOrder.Line line) {
+        LigneCommandeRequest body = new LigneCommandeRequest();
+        body.setCommande(commande);
+        body.setPlat(new PlatRef(line.getIdPlat()));
+        body.setQuantite(line.getQuantite());
+        body.setPrixUnitaire(line.getPrixUnitaire());
+
+        if (line.getOptions() != null && !line.getOptions().isEmpty()) {
+            body.setOptions(line.getOptions());
+        }
+        return body;
+    }
+
     // ========================
     //    MÉTHODE GÉNÉRIQUE
     // ========================
@@ -110,8 +229,299 @@ public class OrderApiService {
      * @param responseType Le type de retour attendu pour GSON (null si on ignore la réponse)
      */
     private static <T> T sendRequest(String endpoint, String method, Object body, Type responseType) throws IOException, InterruptedException {
+        return sendRequest(endpoint, method, body, responseType, null);
+    }
+
+    private static <T> T sendRequest(String endpoint, String method, Object body, Type responseType, String idempotencyKey) throws IOException, InterruptedException {
+        if (!"POST".equalsIgnoreCase(method)) {
+            return awaitGet(getJsonAsync(endpoint, json -> parseBody(json, responseType)));
+        }
+        HttpResponse<String> response = sendWrite(endpoint, body, idempotencyKey);
+        return parseResponse(response, responseType);
+    }
+
+    private static <T> T awaitGet(CompletableFuture<T> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = unwrap(e.getCause());
+            if (cause instanceof IOException) throw (IOException) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * GET conditionnel asynchrone (ne bloque aucun thread) : sur un 304, le parser n'est pas appelé
+     * et on récupère l'objet déjà construit. Lecture couverte (hedging) si l'endpoint le prévoit.
+     *
+     * Un GET identique déjà en cours n'est pas renvoyé : l'appelant reçoit le même résultat parsé
+     * (un endpoint est toujours lu avec le même parser).
+     */
+    static <T> CompletableFuture<T> getJsonAsync(String endpoint, Function<String, T> parser) {
+        return getJsonAsync(endpoint, parser, true);
+    }
+
+    /**
+     * Idem ; avec remember = false, la réponse n'est pas gardée dans le cache conditionnel
+     * (URL à usage unique, ex. /catalogue/changements?depuis=N).
+     */
+    @SuppressWarnings("unchecked")
+    static <T> CompletableFuture<T> getJsonAsync(String endpoint, Function<String, T> parser, boolean remember) {
+        CompletableFuture<T> shared = new CompletableFuture<>();
+        CompletableFuture<?> existing = inFlightGets.putIfAbsent(endpoint, shared);
+        if (existing != null) {
+            coalescedGets.increment();
+            // Copie : un appelant qui annule son future n'annule pas celui des autres
+            return ((CompletableFuture<T>) existing).copy();
+        }
+
+        fetchJson(endpoint, parser, remember).whenComplete((value, error) -> {
+            // Retiré avant de compléter : un appel qui arrive ensuite repart sur le réseau
+            inFlightGets.remove(endpoint, shared);
+            if (error == null) shared.complete(value);
+            else shared.completeExceptionally(error);
+        });
+        return shared.copy();
+    }
+
+    private static <T> CompletableFuture<T> fetchJson(String endpoint, Function<String, T> parser, boolean remember) {
+        return fetchJson(endpoint, parser, remember, true);
+    }
+
+    private static <T> CompletableFuture<T> fetchJson(String endpoint, Function<String, T> parser, boolean remember, boolean conditional) {
+        return sendRead(endpoint, conditional)
+                .thenCompose(response -> {
+                    if (response.statusCode() != 200 && response.statusCode() != 304) {
+                        throw new CompletionException(new HttpStatusException(response.statusCode(), endpoint));
+                    }
+                    if (!remember) return CompletableFuture.completedFuture(parser.apply(response.body()));
+                    try {
+                        // Validateurs et cache par endpoint : valables quelle que soit l'instance qui répond
+                        return CompletableFuture.completedFuture(validators.resolve(endpoint, response, parser));
+                    } catch (ConditionalCache.EvictedException e) {
+                        // Version évincée du cache entre l'envoi des validateurs et le 304 : une fois en GET complet
+                        if (conditional) return fetchJson(endpoint, parser, remember, false);
+                        throw new CompletionException(e);
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                });
+    }
+
+    // ========================
+    //    ROUTAGE (instances)
+    // ========================
+
+    private static BackendRegistry backends() {
+        return BackendRegistry.getInstance();
+    }
+
+    /**
+     * Lecture sur l'instance saine la plus rapide ; en cas d'échec, un nouvel essai sur une autre instance.
+     */
+    private static CompletableFuture<HttpResponse<String>> sendRead(String endpoint, boolean conditional) {
+        Backend node = backends().forRead();
+        return sendHedged(node, endpoint, conditional)
+                .handle((response, error) -> {
+                    if (error == null && response.statusCode() < 500) return CompletableFuture.completedFuture(response);
+                    Backend other = backends().forRead(node);
+                    if (other == node) {
+                        return (error == null) ? CompletableFuture.completedFuture(response) : CompletableFuture.<HttpResponse<String>>failedFuture(error);
+                    }
+                    return sendAsync(other, newGet(other, endpoint, conditional));
+                })
+                .thenCompose(f -> f);
+    }
+
+    /**
+     * Écriture bloquante : le primaire d'abord, puis les autres instances s'il ne répond pas (ou répond 5xx).
+     * Sans risque de doublon grâce à la clé d'idempotence, tirée ici si l'appelant n'en a pas
+     * (la même pour toutes les instances essayées).
+     */
+    private static HttpResponse<String> sendWrite(String endpoint, Object body, String idempotencyKey) throws IOException, InterruptedException {
+        if (idempotencyKey == null) idempotencyKey = UUID.randomUUID().toString();
+        List<Backend> order = backends().forWrite();
+        IOException lastError = null;
+        HttpResponse<String> lastResponse = null;
+
+        for (Backend node : order) {
+            try {
+                HttpResponse<String> response = send(node, newRequestBuilder(node, endpoint, "POST", body, idempotencyKey).build());
+                if (response.statusCode() < 500) return response;
+                lastResponse = response;
+            } catch (IOException e) {
+                lastError = e;
+            }
+        }
+        if (lastResponse != null) return lastResponse;
+        throw lastError;
+    }
+
+    private static CompletableFuture<HttpResponse<String>> sendWriteAsync(String endpoint, Object body, String idempotencyKey) {
+        String key = (idempotencyKey != null) ? idempotencyKey : UUID.randomUUID().toString();
+        return sendWriteAsync(backends().forWrite(), 0, endpoint, body, key);
+    }
+
+    private static CompletableFuture<HttpResponse<String>> sendWriteAsync(List<Backend> order, int index, String endpoint, Object body, String idempotencyKey) {
+        Backend node = order.get(index);
+        CompletableFuture<HttpResponse<String>> attempt = sendAsync(node, newRequestBuilder(node, endpoint, "POST", body, idempotencyKey).build());
+        if (index == order.size() - 1) return attempt;
+
+        return attempt
+                .handle((response, error) -> (error == null && response.statusCode() < 500)
+                        ? CompletableFuture.completedFuture(response)
+                        : sendWriteAsync(order, index + 1, endpoint, body, idempotencyKey))
+                .thenCompose(f -> f);
+    }
+
+    // ========================
+    //    ENVOI (disjoncteur)
+    // ========================
+
+    /**
+     * Envoi bloquant, refusé sans appel réseau si le circuit de l'instance est ouvert.
+     */
+    private static HttpResponse<String> send(Backend node, HttpRequest request) throws IOException, InterruptedException {
+        if (!node.breaker.tryAcquire()) throw new CircuitOpenException(node);
+        EndpointPolicy policy = policyOf(node, request);
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            recordOutcome(node, policy, start, response.statusCode());
+            return response;
+        } catch (IOException e) {
+            recordFailure(node, policy, start, e);
+            throw e;
+        } catch (InterruptedException e) {
+            node.breaker.onCancelled();
+            throw e;
+        }
+    }
+
+    private static CompletableFuture<HttpResponse<String>> sendAsync(Backend node, HttpRequest request) {
+        if (!node.breaker.tryAcquire()) return CompletableFuture.failedFuture(new CircuitOpenException(node));
+        EndpointPolicy policy = policyOf(node, request);
+        long start = System.nanoTime();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, error) -> {
+                    if (error == null) recordOutcome(node, policy, start, response.statusCode());
+                    else recordFailure(node, policy, start, error);
+                });
+    }
+
+    /**
+     * Lecture couverte : si aucune réponse n'est arrivée après le p95 de l'endpoint, la même requête
+     * est envoyée à une autre instance saine (ou à la même s'il n'y en a pas) et la première réponse
+     * l'emporte (l'autre est annulée). Échoue seulement si toutes les requêtes envoyées ont échoué.
+     * Chaque requête passe par le disjoncteur de l'instance visée et compte pour elle seule.
+     */
+    private static CompletableFuture<HttpResponse<String>> sendHedged(Backend node, String endpoint, boolean conditional) {
+        HttpRequest request = newGet(node, endpoint, conditional);
+        EndpointPolicy policy = EndpointPolicy.of(endpoint);
+        long hedgeDelayMs = policy.hedgeDelayMs();
+        if (hedgeDelayMs < 0) return sendAsync(node, request);
+
+        CompletableFuture<HttpResponse<String>> result = new CompletableFuture<>();
+        List<CompletableFuture<HttpResponse<String>>> calls = new CopyOnWriteArrayList<>();
+        AtomicInteger inFlight = new AtomicInteger(1);
+
+        BiConsumer<HttpResponse<String>, Throwable> onAttempt = (response, error) -> {
+            if (error == null) {
+                result.complete(response);
+            } else if (inFlight.decrementAndGet() == 0) {
+                result.completeExceptionally(error);
+            }
+        };
+
+        sendAttempt(node, request, policy, calls).whenComplete(onAttempt);
+
+        CompletableFuture.delayedExecutor(hedgeDelayMs, TimeUnit.MILLISECONDS).execute(() -> {
+            if (result.isDone() || inFlight.getAndIncrement() == 0) return;
+            hedgedRequests.increment();
+            Backend target = backends().forRead(node);
+            HttpRequest hedgeRequest = (target == node) ? request : newGet(target, endpoint, conditional);
+            sendAttempt(target, hedgeRequest, policy, calls).whenComplete(onAttempt);
+        });
+
+        // La requête perdante est annulée (ni succès ni échec pour son instance)
+        return result.whenComplete((response, error) -> calls.forEach(c -> c.cancel(true)));
+    }
+
+    // Une requête d'une lecture couverte, comptée pour l'instance qui la sert
+    private static CompletableFuture<HttpResponse<String>> sendAttempt(Backend node, HttpRequest request, EndpointPolicy policy,
+                                                                       List<CompletableFuture<HttpResponse<String>>> calls) {
+        if (!node.breaker.tryAcquire()) return CompletableFuture.failedFuture(new CircuitOpenException(node));
+        long start = System.nanoTime();
+        CompletableFuture<HttpResponse<String>> call = httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+        calls.add(call);
+        return call.whenComplete((response, error) -> {
+            if (error == null) recordOutcome(node, policy, start, response.statusCode());
+            else if (unwrap(error) instanceof CancellationException) node.breaker.onCancelled();
+            else recordFailure(node, policy, start, error);
+        });
+    }
+
+    private static EndpointPolicy policyOf(Backend node, HttpRequest request) {
+        String url = request.uri().toString();
+        return EndpointPolicy.of(url.substring(node.baseUrl.length()));
+    }
+
+    private static void recordOutcome(Backend node, EndpointPolicy policy, long startNanos, int status) {
+        long elapsed = System.nanoTime() - startNanos;
+        policy.record(elapsed);
+        if (status >= 500) {
+            policy.errors.increment();
+            node.breaker.onFailure();
+            node.markUnhealthy("HTTP " + status);
+        } else {
+            node.breaker.onSuccess();
+            node.markHealthy(elapsed / 1_000_000);
+        }
+    }
+
+    private static void recordFailure(Backend node, EndpointPolicy policy, long startNanos, Throwable error) {
+        policy.errors.increment();
+        // Un délai dépassé compte dans l'histogramme (sinon le p99 ne verrait jamais les appels trop lents)
+        if (unwrap(error) instanceof HttpTimeoutException) {
+            policy.record(System.nanoTime() - startNanos);
+        }
+        node.breaker.onFailure();
+        node.markUnhealthy(unwrap(error).toString());
+    }
+
+    /** Nombre de GET évités car identiques à un GET déjà en cours. */
+    static long coalescedGetCount() {
+        return coalescedGets.sum();
+    }
+
+    /** Nombre de requêtes de couverture envoyées depuis le démarrage. */
+    static long hedgedRequestCount() {
+        return hedgedRequests.sum();
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    // conditional = false : GET complet, sans If-None-Match / If-Modified-Since
+    private static HttpRequest newGet(Backend node, String endpoint, boolean conditional) {
+        HttpRequest.Builder builder = newRequestBuilder(node, endpoint, "GET", null, null)
+                .header("Accept", "application/json");
+        if (conditional) validators.addValidators(endpoint, builder);
+        return builder.build();
+    }
+
+    private static HttpRequest.Builder newRequestBuilder(Backend node, String endpoint, String method, Object body, String idempotencyKey) {
         HttpRequest.Builder builder = HttpRequest.newBuilder()
-                .uri(URI.create(BASE_URL + endpoint));
+                .uri(node.resolve(endpoint))
+                .timeout(EndpointPolicy.of(endpoint).timeout());
+
+        if (idempotencyKey != null) {
+            builder.header(IDEMPOTENCY_HEADER, idempotencyKey);
+        }
 
         if ("POST".equalsIgnoreCase(method)) {
             String jsonBody = gson.toJson(body);
@@ -120,16 +530,24 @@ public class OrderApiService {
         } else {
             builder.GET();
         }
+        return builder;
+    }
 
-        HttpResponse<String> response = httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+    private static <T> T parseResponse(HttpResponse<String> response, Type responseType) throws IOException {
+        checkStatus(response);
+        return parseBody(response.body(), responseType);
+    }
 
+    private static void checkStatus(HttpResponse<String> response) throws IOException {
         // Vérification basique du statut 2xx
         if (response.statusCode() / 100 != 2) {
-            throw new IOException("Erreur HTTP : " + response.statusCode() + " Body: " + response.body());
+            throw new HttpStatusException(response.statusCode(), response.uri().getPath(), response.body());
         }
+    }
 
-        if (responseType != null && response.body() != null && !response.body().isEmpty()) {
-            return gson.fromJson(response.body(), responseType);
+    private static <T> T parseBody(String json, Type responseType) {
+        if (responseType != null && json != null && !json.isEmpty()) {
+            return gson.fromJson(json, responseType);
         }
         return null;
     }
@@ -166,6 +584,42 @@ public class OrderApiService {
         void setOptions(List<Option> opts) {this.options = opts;}
     }
 
+    static class BatchCommandeRequest {
+        private double montantTotal;
+        private final List<LigneCommandeRequest> lignes = new ArrayList<>();
+        void setMontantTotal(double d) {this.montantTotal=d;}
+        void addLigne(LigneCommandeRequest l) {this.lignes.add(l);}
+    }
+
+    private static class BatchUnsupportedException extends IOException {
+        private static final long serialVersionUID = 1L;
+        BatchUnsupportedException() { super("/commandes/batch non supporté"); }
+    }
+
+    /** Réponse avec un statut inattendu (GET : ni 200, ni 304 ; POST : hors 2xx). */
+    static class HttpStatusException extends IOException {
+        private static final long serialVersionUID = 1L;
+        final int status;
+        HttpStatusException(int status, String endpoint) {
+            super("Erreur HTTP : " + status + " (" + endpoint + ")");
+            this.status = status;
+        }
+        HttpStatusException(int status, String endpoint, String body) {
+            super("Erreur HTTP : " + status + " (" + endpoint + ") Body: " + body);
+            this.status = status;
+        }
+
+        /** Refus définitif : 4xx, sauf 408 (délai) et 429 (trop de requêtes) qui méritent un nouvel essai. */
+        boolean isRejection() {
+            return status >= 400 && status < 500 && status != 408 && status != 429;
+        }
+    }
+
+    static class CircuitOpenException extends IOException {
+        private static final long serialVersionUID = 1L;
+        CircuitOpenException(Backend node) { super("Backend " + node.baseUrl + " indisponible (circuit ouvert)"); }
+    }
+
     static class CommandeRef {
         private int idCommande;
         CommandeRef(int id) { this.idCommande = id; }
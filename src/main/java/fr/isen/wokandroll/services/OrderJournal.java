@@ -0,0 +1,336 @@
+package fr.isen.wokandroll.services;
+
+import com.google.gson.JsonParseException;
+import fr.isen.wokandroll.models.Cart;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Journal local (append-only) des commandes payées mais pas encore acceptées par le backend.
+ *
+ * Un seul thread écrit dans le fichier : il regroupe toutes les écritures en attente
+ * et ne fait qu'un fsync par lot. Les commandes acquittées sont retirées du fichier
+ * par compaction (réécriture puis remplacement atomique).
+ */
+public class OrderJournal {
+
+    private static OrderJournal instance;
+
+    private static final String FILE_NAME = "orders.journal";
+    // Commandes refusées définitivement par le backend, gardées pour traitement manuel
+    private static final String REJECTED_FILE_NAME = "orders.rejected";
+    // Nombre d'acquittements avant de réécrire le fichier sans les commandes terminées
+    private static final int COMPACT_THRESHOLD = 32;
+
+    private final Path file;
+    private FileChannel channel;
+
+    // Commandes non acquittées, dans l'ordre de paiement (protégé par this)
+    private final Map<String, PendingOrder> pending = new LinkedHashMap<>();
+    private int nextTicket = 1;
+    private int ackedSinceCompaction = 0;
+
+    private final BlockingQueue<Write> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+
+    public static synchronized OrderJournal getInstance() throws IOException {
+        if (instance == null) {
+            instance = new OrderJournal(AppFiles.dataDir().resolve(FILE_NAME));
+        }
+        return instance;
+    }
+
+    OrderJournal(Path file) throws IOException {
+        this.file = file;
+        load();
+        openChannel();
+        writer = new Thread(this::writeLoop, "order-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // ========================
+    //      API PUBLIQUE
+    // ========================
+
+    /**
+     * Fige le panier en une commande avec un numéro de ticket local.
+     */
+    public synchronized PendingOrder newOrder(Cart cart) {
+        return PendingOrder.fromCart(cart, nextTicket++);
+    }
+
+    /**
+     * Ajoute la commande au journal. Le future se termine une fois la commande sur disque (fsync).
+     */
+    public CompletableFuture<Void> append(PendingOrder order) {
+        synchronized (this) {
+            pending.put(order.getIdempotencyKey(), order);
+        }
+        return enqueue(Record.order(order));
+    }
+
+    /**
+     * Marque la commande comme acceptée par le backend.
+     */
+    public CompletableFuture<Void> acknowledge(String idempotencyKey, int idCommande) {
+        boolean compact;
+        synchronized (this) {
+            if (pending.remove(idempotencyKey) == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+            compact = ++ackedSinceCompaction >= COMPACT_THRESHOLD || pending.isEmpty();
+        }
+        CompletableFuture<Void> written = enqueue(Record.ack(idempotencyKey, idCommande));
+        if (compact) {
+            queue.add(Write.COMPACT);
+        }
+        return written;
+    }
+
+    /**
+     * Met de côté une commande refusée par le backend (copie dans orders.rejected, sur disque
+     * avant de rendre la main), puis la retire du journal pour ne pas bloquer les suivantes.
+     */
+    public CompletableFuture<Void> reject(PendingOrder order, String reason) throws IOException {
+        Path rejected = file.resolveSibling(REJECTED_FILE_NAME);
+        try (FileChannel out = FileChannel.open(rejected, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            writeFully(out, OrderApiService.gson.toJson(Record.rejected(order, reason)) + "\n");
+            out.force(false);
+        }
+        return acknowledge(order.getIdempotencyKey(), 0);
+    }
+
+    public synchronized List<PendingOrder> pending() {
+        return new ArrayList<>(pending.values());
+    }
+
+    public void close() {
+        queue.add(Write.STOP);
+        try {
+            writer.join(2_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ========================
+    //      ÉCRITURE
+    // ========================
+
+    private CompletableFuture<Void> enqueue(Record record) {
+        Write write = new Write(OrderApiService.gson.toJson(record) + "\n");
+        queue.add(write);
+        return write.done;
+    }
+
+    private void writeLoop() {
+        List<Write> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch);
+
+            boolean compact = false;
+            boolean stop = false;
+            try {
+                for (Write w : batch) {
+                    if (w == Write.COMPACT) compact = true;
+                    else if (w == Write.STOP) stop = true;
+                    else writeFully(channel, w.line);
+                }
+                // Un seul fsync pour tout le lot
+                channel.force(false);
+                for (Write w : batch) w.done.complete(null);
+
+                if (compact) compact();
+            } catch (IOException e) {
+                System.err.println("Erreur d'écriture du journal : " + e.getMessage());
+                for (Write w : batch) w.done.completeExceptionally(e);
+            }
+            batch.clear();
+
+            if (stop) {
+                closeChannel();
+                return;
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel out, String text) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    /**
+     * Réécrit le journal avec uniquement les commandes en attente, puis remplace l'ancien fichier.
+     */
+    private void compact() throws IOException {
+        List<PendingOrder> remaining;
+        int ticket;
+        synchronized (this) {
+            remaining = new ArrayList<>(pending.values());
+            ticket = nextTicket;
+            ackedSinceCompaction = 0;
+        }
+
+        Path tmp = file.resolveSibling(FILE_NAME + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            StringBuilder sb = new StringBuilder();
+            sb.append(OrderApiService.gson.toJson(Record.seq(ticket))).append('\n');
+            for (PendingOrder order : remaining) {
+                sb.append(OrderApiService.gson.toJson(Record.order(order))).append('\n');
+            }
+            writeFully(out, sb.toString());
+            // Contenu et taille sur disque avant le renommage : jamais de journal tronqué après une coupure
+            out.force(true);
+        }
+
+        closeChannel();
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            // Rouvert dans tous les cas : sur le nouveau fichier, ou sur l'ancien si le remplacement a échoué
+            openChannel();
+        }
+    }
+
+    // ========================
+    //      LECTURE
+    // ========================
+
+    /**
+     * Relit le journal. Seule la dernière ligne peut être incomplète (coupure pendant une écriture) :
+     * elle est retirée du fichier, sinon l'ajout suivant s'y collerait et les deux seraient perdus.
+     * Une ligne illisible ailleurs est une vraie corruption : le journal est refusé.
+     */
+    private void load() throws IOException {
+        if (!Files.exists(file)) return;
+
+        byte[] content = Files.readAllBytes(file);
+        // Fin de la dernière ligne complète et lisible
+        int validEnd = 0;
+        int lineNumber = 0;
+        while (validEnd < content.length) {
+            int end = validEnd;
+            while (end < content.length && content[end] != '\n') end++;
+            lineNumber++;
+            boolean last = end >= content.length - 1;
+
+            Record record;
+            try {
+                // Sans fin de ligne, l'écriture a été interrompue même si le JSON semble complet
+                if (end == content.length) throw new JsonParseException("fin de ligne manquante");
+                record = OrderApiService.gson.fromJson(
+                        new String(content, validEnd, end - validEnd, StandardCharsets.UTF_8), Record.class);
+            } catch (JsonParseException e) {
+                if (last) break;
+                throw new IOException("Journal corrompu ligne " + lineNumber + " : " + file, e);
+            }
+            validEnd = end + 1;
+            if (record == null || record.type == null) continue;
+
+            switch (record.type) {
+                case "ORDER" -> {
+                    if (record.order != null) {
+                        pending.putIfAbsent(record.order.getIdempotencyKey(), record.order);
+                        nextTicket = Math.max(nextTicket, record.order.getTicket() + 1);
+                    }
+                }
+                case "ACK" -> pending.remove(record.key);
+                case "SEQ" -> nextTicket = Math.max(nextTicket, record.next);
+                default -> { }
+            }
+        }
+
+        if (validEnd < content.length) {
+            System.err.println("Journal : dernière ligne incomplète retirée (" + (content.length - validEnd) + " octets)");
+            try (FileChannel out = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                out.truncate(validEnd);
+                out.force(true);
+            }
+        }
+    }
+
+    private void openChannel() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private void closeChannel() {
+        try {
+            if (channel != null) channel.close();
+        } catch (IOException ignored) {}
+    }
+
+    // ==============================
+    //     TYPES INTERNES
+    // ==============================
+
+    private static class Write {
+        static final Write COMPACT = new Write(null);
+        static final Write STOP = new Write(null);
+
+        final String line;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Write(String line) { this.line = line; }
+    }
+
+    static class Record {
+        String type;
+        PendingOrder order;
+        String key;
+        int idCommande;
+        int next;
+        String reason;
+
+        static Record order(PendingOrder order) {
+            Record r = new Record();
+            r.type = "ORDER";
+            r.order = order;
+            return r;
+        }
+
+        static Record ack(String key, int idCommande) {
+            Record r = new Record();
+            r.type = "ACK";
+            r.key = key;
+            r.idCommande = idCommande;
+            return r;
+        }
+
+        static Record rejected(PendingOrder order, String reason) {
+            Record r = new Record();
+            r.type = "REJECTED";
+            r.order = order;
+            r.reason = reason;
+            return r;
+        }
+
+        static Record seq(int next) {
+            Record r = new Record();
+            r.type = "SEQ";
+            r.next = next;
+            return r;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package fr.isen.wokandroll.services;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rejoue en arrière-plan les commandes du journal vers le backend.
+ * En cas d'échec réseau ou 5xx, nouvel essai avec un délai exponentiel (1 s, 2 s, 4 s... plafonné à 1 min).
+ * Une commande refusée (4xx, sauf 408 et 429) ne sera jamais acceptée : elle est mise de côté
+ * (orders.rejected) et le rejeu passe à la suivante.
+ */
+public class OrderReplayer {
+
+    private static OrderReplayer instance;
+
+    private static final long INITIAL_BACKOFF_MS = 1_000;
+    private static final long MAX_BACKOFF_MS = 60_000;
+
+    private final OrderJournal journal;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "order-replayer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private long backoffMs = INITIAL_BACKOFF_MS;
+    private volatile boolean retryScheduled = false;
+
+    public static synchronized OrderReplayer getInstance() throws IOException {
+        if (instance == null) {
+            instance = new OrderReplayer(OrderJournal.getInstance());
+        }
+        return instance;
+    }
+
+    OrderReplayer(OrderJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Lance un rejeu (au démarrage, ou juste après l'ajout d'une commande).
+     * Si un nouvel essai est déjà programmé après un échec, on respecte son délai.
+     */
+    public void wakeUp() {
+        if (retryScheduled) return;
+        scheduler.execute(this::drain);
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void drain() {
+        retryScheduled = false;
+
+        for (PendingOrder order : journal.pending()) {
+            try {
+                int idCommande = OrderApiService.submitOrder(order);
+                journal.acknowledge(order.getIdempotencyKey(), idCommande);
+                backoffMs = INITIAL_BACKOFF_MS;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                if (e instanceof OrderApiService.HttpStatusException
+                        && ((OrderApiService.HttpStatusException) e).isRejection()
+                        && reject(order, e)) {
+                    continue;
+                }
+                scheduleRetry(order, e);
+                return;
+            }
+        }
+    }
+
+    // Faux si la commande n'a pas pu être mise de côté : elle reste alors dans le journal
+    private boolean reject(PendingOrder order, Exception cause) {
+        try {
+            journal.reject(order, cause.getMessage());
+            System.err.println("Commande #" + order.getTicket() + " refusée par le backend (" + cause.getMessage()
+                    + "), mise de côté dans orders.rejected");
+            return true;
+        } catch (IOException e) {
+            System.err.println("Commande #" + order.getTicket() + " refusée, mais impossible de la mettre de côté : " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void scheduleRetry(PendingOrder order, Exception cause) {
+        long delay = Jitter.apply(backoffMs);
+        System.err.println("Commande #" + order.getTicket() + " non envoyée (" + cause
+                + "), nouvel essai dans " + delay + " ms");
+
+        backoffMs = Math.min(backoffMs * 2, MAX_BACKOFF_MS);
+        retryScheduled = true;
+        scheduler.schedule(this::drain, delay, TimeUnit.MILLISECONDS);
+    }
+}
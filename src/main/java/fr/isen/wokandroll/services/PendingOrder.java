@@ -0,0 +1,63 @@
+package fr.isen.wokandroll.services;
+
+import fr.isen.wokandroll.models.Cart;
+import fr.isen.wokandroll.models.CartItem;
+import fr.isen.wokandroll.models.Option;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Commande figée au moment du paiement, telle qu'elle est écrite dans le journal
+ * puis rejouée vers le backend. La clé d'idempotence évite les doublons en cas de renvoi.
+ */
+public class PendingOrder {
+
+    private String idempotencyKey;
+    private int ticket;
+    private double montantTotal;
+    private List<Line> lignes;
+
+    public static PendingOrder fromCart(Cart cart, int ticket) {
+        PendingOrder order = new PendingOrder();
+        order.idempotencyKey = UUID.randomUUID().toString();
+        order.ticket = ticket;
+        order.montantTotal = cart.getTotal();
+        order.lignes = new ArrayList<>();
+        for (CartItem item : cart.getItems()) {
+            order.lignes.add(Line.of(item));
+        }
+        return order;
+    }
+
+    public String getIdempotencyKey() { return idempotencyKey; }
+    public int getTicket() { return ticket; }
+    public double getMontantTotal() { return montantTotal; }
+    public List<Line> getLignes() { return lignes; }
+
+    public static class Line {
+        private int idPlat;
+        // Nom du plat : seulement pour les statistiques locales, non envoyé au backend
+        private String nom;
+        private int quantite;
+        private double prixUnitaire;
+        private List<Option> options;
+
+        public static Line of(CartItem item) {
+            Line line = new Line();
+            line.idPlat = item.getProduct().getId();
+            line.nom = item.getProduct().getName();
+            line.quantite = item.getQuantity();
+            line.prixUnitaire = item.getProduct().getPrice();
+            line.options = (item.getOptions() != null) ? new ArrayList<>(item.getOptions()) : new ArrayList<>();
+            return line;
+        }
+
+        public int getIdPlat() { return idPlat; }
+        public String getNom() { return nom; }
+        public int getQuantite() { return quantite; }
+        public double getPrixUnitaire() { return prixUnitaire; }
+        public List<Option> getOptions() { return options; }
+    }
+}
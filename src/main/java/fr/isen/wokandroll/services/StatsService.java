@@ -0,0 +1,141 @@
+package fr.isen.wokandroll.services;
+
+import fr.isen.wokandroll.models.Product;
+import javafx.application.Platform;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Statistiques du back-office : les trois appels partent en parallèle et les dernières valeurs
+ * reçues sont gardées pour être affichées tout de suite à la prochaine visite.
+ *
+ * Le rafraîchissement automatique tourne sur un seul thread partagé : jamais deux appels en même temps,
+ * et en cas d'échec le délai double (plafonné) pour ne pas surcharger le backend.
+ */
+public class StatsService {
+
+    private static StatsService instance;
+
+    private static final long REFRESH_INTERVAL_MS = 30_000;
+    private static final long MAX_BACKOFF_MS = 5 * 60_000;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "stats-refresh");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private volatile Stats last;
+    private AutoRefresh current;
+
+    private StatsService() {}
+
+    public static synchronized StatsService getInstance() {
+        if (instance == null) {
+            instance = new StatsService();
+        }
+        return instance;
+    }
+
+    /** Dernières statistiques reçues, ou null si aucun appel n'a encore abouti. */
+    public Stats getLast() {
+        return last;
+    }
+
+    /**
+     * Lance les trois appels en parallèle. N'échoue jamais : FRESH si les trois ont répondu,
+     * sinon les dernières valeurs connues (STALE) ou UNAVAILABLE.
+     */
+    public CompletableFuture<ApiResult<Stats>> refresh() {
+        CompletableFuture<Long> nombre = OrderApiService.fetchNombreCommandes();
+        CompletableFuture<Double> panier = OrderApiService.fetchPanierMoyen();
+        CompletableFuture<List<Product>> top = OrderApiService.fetchTopPlats();
+
+        return CompletableFuture.allOf(nombre, panier, top).handle((v, error) -> {
+            if (error != null) {
+                Throwable cause = (error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error;
+                return ApiResult.fallback(last, cause);
+            }
+            Stats stats = new Stats(nombre.join(), panier.join(), top.join(), System.currentTimeMillis());
+            last = stats;
+            return ApiResult.fresh(stats);
+        });
+    }
+
+    // ========================
+    //   RAFRAÎCHISSEMENT AUTO
+    // ========================
+
+    /**
+     * Rafraîchit tout de suite puis toutes les REFRESH_INTERVAL_MS, jusqu'à l'appel de cancel().
+     * Le callback est exécuté sur le thread JavaFX ; un seul rafraîchissement automatique à la fois.
+     */
+    public synchronized AutoRefresh startAutoRefresh(Consumer<ApiResult<Stats>> onResult) {
+        if (current != null) current.cancel();
+        current = new AutoRefresh(onResult);
+        scheduler.execute(current::poll);
+        return current;
+    }
+
+    public final class AutoRefresh {
+        private final Consumer<ApiResult<Stats>> onResult;
+        private volatile boolean cancelled = false;
+        private long delayMs = REFRESH_INTERVAL_MS;
+        private ScheduledFuture<?> next;
+
+        private AutoRefresh(Consumer<ApiResult<Stats>> onResult) {
+            this.onResult = onResult;
+        }
+
+        /** Arrête les rafraîchissements ; une réponse déjà en route est ignorée. */
+        public void cancel() {
+            cancelled = true;
+            synchronized (this) {
+                if (next != null) next.cancel(false);
+            }
+        }
+
+        private void poll() {
+            if (cancelled) return;
+            refresh().thenAccept(result -> {
+                if (cancelled) return;
+                delayMs = result.isFresh() ? REFRESH_INTERVAL_MS : Math.min(delayMs * 2, MAX_BACKOFF_MS);
+                Platform.runLater(() -> {
+                    if (!cancelled) onResult.accept(result);
+                });
+                scheduleNext();
+            });
+        }
+
+        private synchronized void scheduleNext() {
+            if (cancelled) return;
+            long delay = Jitter.apply(delayMs);
+            next = scheduler.schedule(this::poll, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // ==============================
+    //     DONNÉES
+    // ==============================
+
+    public static final class Stats {
+        public final long nombreCommandes;
+        public final double panierMoyen;
+        public final List<Product> topPlats;
+        public final long fetchedAt;
+
+        Stats(long nombreCommandes, double panierMoyen, List<Product> topPlats, long fetchedAt) {
+            this.nombreCommandes = nombreCommandes;
+            this.panierMoyen = panierMoyen;
+            this.topPlats = topPlats;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+}
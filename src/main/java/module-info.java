@@ -4,19 +4,26 @@ module fr.isen.wokandroll {
     requires javafx.graphics;
     requires com.google.gson;
     requires java.net.http;
+    // Outils de développement (profil Maven devtools, hors du jar) : inutiles à l'exécution de la borne
+    // Backend de substitution
+    requires static jdk.httpserver;
+    // Mesure des allocations par thread (benchmarks)
+    requires static jdk.management;
+    // Vignettes générées au build (ThumbnailGenerator, lancé par Maven)
+    requires static java.desktop;
 
     // Autorise JavaFX à lire les fichiers FXML
     opens fr.isen.wokandroll to javafx.fxml;
 
-    // Autorise JavaFX et Gson à accéder aux contrôleurs
-    opens fr.isen.wokandroll.controllers to javafx.fxml, com.google.gson;
+    // Autorise JavaFX à accéder aux contrôleurs
+    opens fr.isen.wokandroll.controllers to javafx.fxml;
 
     // Autorise Gson à accéder aux services (API)
     opens fr.isen.wokandroll.services to com.google.gson;
 
-    // Autorise Gson à accéder aux modèles (Option, Product, CartItem)
-    // pour remplir les données reçues du Backend
-    opens fr.isen.wokandroll.models to com.google.gson, javafx.base;
+    // Autorise JavaFX à lire les propriétés des modèles
+    // (Gson n'en a plus besoin : Option passe par CatalogJson, sans réflexion)
+    opens fr.isen.wokandroll.models to javafx.base;
 
     exports fr.isen.wokandroll;
     exports fr.isen.wokandroll.controllers;